@@ -1,5 +1,7 @@
 package com.shoreviewanalytics;
 
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.retry.RetryTopics;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,12 +29,25 @@ public class OssKafkaCassandraSpringApplication {
 
 	@Value("${tpd.topic-name}")
 	private String topicName;
+
+	@Autowired
+	private KafkaConfig kafkaConfig;
 	/*
-	create a new topic called ... topicName, with 3 partitions and a replication factor of 1
+	create a new topic called ... topicName, with tpd.topic.partitions partitions and a replication factor of
+	tpd.topic.replication-factor. An existing topic is left as it is, its partition count only grows with kafka-topics --alter
 	 */
 	@Bean
 	public NewTopic adviceTopic() {
-		return new NewTopic(topicName, 3, (short) 1);
+		return new NewTopic(topicName, kafkaConfig.getTopic().getPartitions(), kafkaConfig.getTopic().getReplicationFactor());
+	}
+
+	/*
+	the delayed retry topics and the dead letter topic of topicName, from tpd.retry.delays-ms; they are created by
+	MediaRetryListeners before its containers start
+	 */
+	@Bean
+	public RetryTopics retryTopics() {
+		return new RetryTopics(topicName, kafkaConfig.getRetry().getDelaysMs());
 	}
 
 }
@@ -0,0 +1,70 @@
+package com.shoreviewanalytics.cassandra;
+
+/*
+An additive increase, multiplicative decrease limit on the writes in flight to Cassandra, the way TCP sizes its
+congestion window. Every write that is answered within the latency target grows the limit by 1/limit, so by about one
+per round of limit writes; a slower write or an overload error cuts it to limit * backoff. A cut is applied at most
+once per round-trip, the writes that were sent before the cut took effect would otherwise cut it again for the same
+spike. The limit stays between min and max.
+ */
+public class AimdLimit {
+
+    public static final double DEFAULT_BACKOFF = 0.75;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private final double backoff;
+
+    private double limit;
+    private long lastCutNanos;
+    private boolean cut;
+
+    public AimdLimit(int min, int max, long targetNanos, double backoff) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("expected 1 <= min <= max but min was " + min + " and max " + max);
+        }
+        if (backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("backoff must be between 0 and 1 but was " + backoff);
+        }
+        this.min = min;
+        this.max = max;
+        this.targetNanos = targetNanos;
+        this.backoff = backoff;
+        this.limit = max;
+    }
+
+    /*
+    a limit that never moves, e.g. for callers without a latency target
+     */
+    public static AimdLimit fixed(int limit) {
+        return new AimdLimit(limit, limit, Long.MAX_VALUE, DEFAULT_BACKOFF);
+    }
+
+    /*
+    one answered write, nowNanos being System.nanoTime() when it was answered
+     */
+    public synchronized void onSample(long nowNanos, long latencyNanos, boolean overloaded) {
+        if (overloaded || latencyNanos > targetNanos) {
+            if (!cut || nowNanos - lastCutNanos >= latencyNanos) {
+                limit = Math.max(min, limit * backoff);
+                lastCutNanos = nowNanos;
+                cut = true;
+            }
+        } else {
+            limit = Math.min(max, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int get() {
+        return (int) limit;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+}
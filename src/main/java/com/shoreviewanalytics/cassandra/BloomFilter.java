@@ -0,0 +1,230 @@
+package com.shoreviewanalytics.cassandra;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+A Bloom filter over 128 bit hashes, sized for an expected number of entries and a false positive rate. It answers
+"definitely not added" or "probably added"; the second answer is wrong with about the configured probability once the
+expected number of entries has been added, and more often after that.
+Bits are set with compare-and-set, so put and mightContain can be called from any number of threads without locking.
+https://en.wikipedia.org/wiki/Bloom_filter
+ */
+public final class BloomFilter {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+    private final AtomicLong added = new AtomicLong();
+
+    private BloomFilter(long numBits, int numHashes) {
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.words = new AtomicLongArray((int) ((numBits + 63) / 64));
+    }
+
+    /*
+    m = -n ln(p) / ln(2)^2 bits and k = m / n ln(2) hashes, the optimum for n entries and a false positive rate p
+     */
+    public static BloomFilter create(long expectedEntries, double falsePositiveRate) {
+        if (expectedEntries < 1) {
+            throw new IllegalArgumentException("expectedEntries must be at least 1 but was " + expectedEntries);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1 but was " + falsePositiveRate);
+        }
+        long numBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if (numBits / 64 >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a filter for " + expectedEntries + " entries at " + falsePositiveRate
+                    + " needs " + numBits + " bits, which is too large");
+        }
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / expectedEntries * Math.log(2)));
+        return new BloomFilter(numBits, numHashes);
+    }
+
+    /*
+    Kirsch and Mitzenmacher: the k bit positions are derived from the two halves of one 128 bit hash
+     */
+    public void put(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < numHashes; i++) {
+            setBit((combined & Long.MAX_VALUE) % numBits);
+            combined += hash2;
+        }
+        added.incrementAndGet();
+    }
+
+    public boolean mightContain(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = (combined & Long.MAX_VALUE) % numBits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /*
+    entries put so far, counting an entry that was put twice twice
+     */
+    public long getAdded() {
+        return added.get();
+    }
+
+    /*
+    the false positive rate of the filter as it is now, (bits set / bits)^k
+     */
+    public double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / numBits, numHashes);
+    }
+
+    /*
+    Writes the filter; bits set while it is being written may or may not be included.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(numBits);
+        out.writeInt(numHashes);
+        out.writeLong(added.get());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    public static BloomFilter readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown bloom filter format " + version);
+        }
+        long numBits = in.readLong();
+        int numHashes = in.readInt();
+        if (numBits < 1 || numBits / 64 >= Integer.MAX_VALUE || numHashes < 1) {
+            throw new IOException("Invalid bloom filter of " + numBits + " bits and " + numHashes + " hashes");
+        }
+        BloomFilter filter = new BloomFilter(numBits, numHashes);
+        filter.added.set(in.readLong());
+        for (int i = 0; i < filter.words.length(); i++) {
+            filter.words.set(i, in.readLong());
+        }
+        return filter;
+    }
+
+    /*
+    MurmurHash3 x64 128, the two halves of the result are the two hashes taken by put and mightContain
+    https://github.com/aappleby/smhasher/blob/master/src/MurmurHash3.cpp
+     */
+    public static long[] murmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = data.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = littleEndian(data, i * 16);
+            long k2 = littleEndian(data, i * 16 + 8);
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        switch (data.length & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                k2 *= c2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= c1;
+                h2 ^= k2;
+            case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                h1 ^= k1;
+            default:
+                break;
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long littleEndian(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
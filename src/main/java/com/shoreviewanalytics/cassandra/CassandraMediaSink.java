@@ -0,0 +1,53 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.shoreviewanalytics.kafka.domain.Media;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+Writes through the MediaWriter to the shared session, see MediaWriter.writeAsync for the batching and the in-flight
+limit. The limit, the writes in flight and the backlog waiting for the limit are published as gauges.
+ */
+@Component
+public class CassandraMediaSink implements MediaSink {
+
+    private final MediaWriter mediaWriter;
+    private final CqlSession session;
+
+    public CassandraMediaSink(MediaWriter mediaWriter, @Lazy CqlSession session, MeterRegistry registry) {
+        this.mediaWriter = mediaWriter;
+        this.session = session;
+        Gauge.builder("media.cassandra.limit", mediaWriter, MediaWriter::getLimit)
+                .description("writes Cassandra may have in flight, adapted to its latency")
+                .register(registry);
+        Gauge.builder("media.cassandra.inflight", mediaWriter, MediaWriter::getInFlight)
+                .description("writes sent to Cassandra and not yet answered")
+                .register(registry);
+        Gauge.builder("media.cassandra.backlog", mediaWriter, MediaWriter::getBacklog)
+                .description("writes waiting for the in-flight limit")
+                .register(registry);
+    }
+
+    @Override
+    public CompletableFuture<?>[] writeAsync(List<Media> records) {
+        return mediaWriter.writeAsync(records, session);
+    }
+
+    /*
+    prepares the insert ahead of the first write, see CassandraWarmup
+     */
+    public void prepare() {
+        mediaWriter.prepare(session);
+    }
+
+    @Override
+    public int getBacklog() {
+        return mediaWriter.getBacklog();
+    }
+}
@@ -0,0 +1,262 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.shoreviewanalytics.config.AppConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Description: Takes the cold start of the Cassandra path out of the first request and the first writes of the listener.
+ * When cassandra.warmup-enabled is true the CA certificate is loaded on a background thread as soon as this bean is
+ * created, while the rest of the application is still starting. Before the listener containers start, the schema is
+ * provisioned when cassandra.schema-enabled is true, see SchemaProvisioner, the shared session is opened, the insert
+ * and the selects are prepared in parallel and every warm-up query is sent warmup-iterations times at once, which
+ * opens the connections of the pool and runs the driver's request path.
+ * The listeners start once the path is hot or after warmup-timeout-ms, a warm-up that has not finished by then goes on
+ * in the background. A failed warm-up is logged and run again after warmup-retry-ms, doubling up to warmup-retry-max-ms,
+ * until the path is hot; meanwhile the first requests connect and prepare on their own.
+ * Every phase is logged and published as the media.startup time gauge with a phase tag: tls, schema, connect, prepare,
+ * queries and ready, the time from the start of the JVM until the path was hot.
+ */
+@Component
+public class CassandraWarmup implements SmartLifecycle {
+
+    public static final String STARTUP = "media.startup";
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(CassandraWarmup.class);
+
+    private final AppConfig config;
+    private final CqlSession session;
+    private final CassandraMediaSink sink;
+    private final MediaReader reader;
+    private final MediaPager pager;
+    private final SchemaProvisioner schema;
+    private final MeterRegistry registry;
+
+    private final Map<String, Long> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final CompletableFuture<Void> hot = new CompletableFuture<>();
+    private ScheduledExecutorService executor;
+    private CompletableFuture<?> tls;
+    private volatile Throwable failure;
+    private volatile boolean running;
+
+    public CassandraWarmup(AppConfig config, @Lazy CqlSession session, CassandraMediaSink sink, MediaReader reader,
+                           MediaPager pager, SchemaProvisioner schema, MeterRegistry registry) {
+        this.config = config;
+        this.session = session;
+        this.sink = sink;
+        this.reader = reader;
+        this.pager = pager;
+        this.schema = schema;
+        this.registry = registry;
+        if (isEnabled()) {
+            // one thread per statement prepared in parallel
+            executor = Executors.newScheduledThreadPool(3, runnable -> {
+                Thread thread = new Thread(runnable, "cassandra-warmup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            tls = CompletableFuture.supplyAsync(timed("tls", dbConnector::sslContext), executor);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (!isEnabled()) {
+            if (config.getSchemaEnabled()) {
+                logger.warn("cassandra.schema-enabled needs cassandra.warmup-enabled, the schema is not provisioned");
+            }
+            hot.complete(null);
+            return;
+        }
+        CompletableFuture<Void> first = attempt(config.getWarmupRetryMs());
+        try {
+            first.get(config.getWarmupTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            logger.warn("Cassandra warm-up did not finish within {} ms, starting the listeners cold",
+                    config.getWarmupTimeoutMs());
+        } catch (ExecutionException ex) {
+            // logged above
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+    one run of the warm-up, a failed one schedules the next with twice the delay
+     */
+    private CompletableFuture<Void> attempt(long retryMs) {
+        // a certificate that could not be loaded is loaded again with the next run
+        CompletableFuture<?> context = tls.isCompletedExceptionally()
+                ? CompletableFuture.supplyAsync(timed("tls", dbConnector::sslContext), executor)
+                : tls;
+        // the keyspace has to exist before the session is bound to it
+        return context.thenApplyAsync(loaded -> config.getSchemaEnabled() ? timed("schema", schema::provision).get() : null,
+                executor)
+                // the bean method of the session finds the TLS context loaded, the first call on the lazy session connects
+                .thenApplyAsync(changes -> timed("connect", session::getName).get(), executor)
+                .thenCompose(name -> prepare())
+                .thenCompose(prepared -> queries())
+                .whenComplete((done, ex) -> {
+                    if (ex == null) {
+                        phases.put("ready", ManagementFactory.getRuntimeMXBean().getUptime());
+                        gauge("ready");
+                        logger.info("Cassandra path is hot, startup phases in ms {}", getPhases());
+                        failure = null;
+                        hot.complete(null);
+                        return;
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    failure = cause;
+                    logger.error("Cassandra warm-up failed after phases {}, running it again in {} ms, until then the"
+                            + " first requests connect and prepare on their own", getPhases(), retryMs, cause);
+                    try {
+                        executor.schedule(() -> attempt(Math.min(retryMs * 2, config.getWarmupRetryMaxMs())),
+                                retryMs, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException stopped) {
+                        // stopped
+                    }
+                });
+    }
+
+    /*
+    the insert of the listener and the selects of the reads, each on a thread of its own
+     */
+    private CompletableFuture<Void> prepare() {
+        long start = System.nanoTime();
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(sink::prepare, executor),
+                CompletableFuture.runAsync(reader::prepare, executor),
+                CompletableFuture.runAsync(pager::prepare, executor))
+                .thenRun(() -> record("prepare", start));
+    }
+
+    /*
+    all queries of all iterations are in flight together, like the writes of a poll
+     */
+    private CompletableFuture<Void> queries() {
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> answered = new ArrayList<>();
+        for (int i = 0; i < config.getWarmupIterations(); i++) {
+            for (String query : config.getWarmupQueries()) {
+                answered.add(session.executeAsync(query).toCompletableFuture());
+            }
+        }
+        return CompletableFuture.allOf(answered.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> record("queries", start));
+    }
+
+    private <T> Supplier<T> timed(String phase, Callable<T> step) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                T result = step.call();
+                record(phase, start);
+                return result;
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        };
+    }
+
+    private void record(String phase, long startNanos) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        phases.put(phase, ms);
+        gauge(phase);
+        logger.info("Cassandra warm-up phase {} took {} ms", phase, ms);
+    }
+
+    private void gauge(String phase) {
+        TimeGauge.builder(STARTUP, phases, TimeUnit.MILLISECONDS, recorded -> recorded.getOrDefault(phase, 0L))
+                .description("startup of the Cassandra path, per phase")
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return config.getWarmupEnabled();
+    }
+
+    /*
+    true once the warm-up has finished, or right away at startup when it is not enabled
+     */
+    public boolean isHot() {
+        return hot.isDone();
+    }
+
+    /*
+    the failure of the last run while the path is not hot, null when there was none
+     */
+    public Throwable getFailure() {
+        return isHot() ? null : failure;
+    }
+
+    /*
+    the phases finished so far and how long each took in ms, in the order they finished
+     */
+    public Map<String, Long> getPhases() {
+        synchronized (phases) {
+            return new LinkedHashMap<>(phases);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    /*
+    just before the listener containers, which start once the warm-up is done
+     */
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+}
@@ -0,0 +1,266 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.shoreviewanalytics.config.AppConfig;
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.serde.MediaBinaryCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Optional stage in front of the MediaWriter that skips records which have already been written, e.g. when Kafka
+redelivers a poll after a rebalance or the same csv is ingested again. A record is identified by the hash of its whole
+binary encoding, so the videoid together with all of its content: a changed row is written again, an identical one is not.
+Records are added to the Bloom filter only once Cassandra has acknowledged them. The filter is written to
+cassandra.dedup-checkpoint-file every dedup-checkpoint-interval-ms and on shutdown, and read back on startup; records
+written after the last checkpoint are written once more after a crash, which is harmless.
+The hit rate, the records in the filter and the false positive rate at its current fill are published as gauges.
+ */
+@Component
+public class MediaDeduplicator implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaDeduplicator.class);
+
+    private final boolean enabled;
+    private final long expectedRecords;
+    private final double falsePositiveRate;
+    private final Path checkpointFile;
+    private final long checkpointIntervalMs;
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    private volatile BloomFilter filter;
+    private ScheduledExecutorService checkpointer;
+
+    @Autowired
+    public MediaDeduplicator(AppConfig config) {
+        this(config.getDedupEnabled(), config.getDedupExpectedRecords(), config.getDedupFalsePositiveRate(),
+                Paths.get(config.getDedupCheckpointFile()), config.getDedupCheckpointIntervalMs());
+    }
+
+    public MediaDeduplicator(boolean enabled, long expectedRecords, double falsePositiveRate,
+                             Path checkpointFile, long checkpointIntervalMs) {
+        this.enabled = enabled;
+        this.expectedRecords = expectedRecords;
+        this.falsePositiveRate = falsePositiveRate;
+        this.checkpointFile = checkpointFile.toAbsolutePath();
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        filter = load();
+        if (checkpointIntervalMs > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "media-dedup-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpointQuietly,
+                    checkpointIntervalMs, checkpointIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /*
+    a checkpoint made for a different size or rate is dropped rather than used with the wrong false positive rate
+     */
+    private BloomFilter load() {
+        BloomFilter created = BloomFilter.create(expectedRecords, falsePositiveRate);
+        if (!Files.isRegularFile(checkpointFile)) {
+            return created;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            BloomFilter loaded = BloomFilter.readFrom(in);
+            if (loaded.getNumBits() != created.getNumBits() || loaded.getNumHashes() != created.getNumHashes()) {
+                logger.warn("Ignoring dedup checkpoint {}, it was made for a different size", checkpointFile);
+                return created;
+            }
+            logger.info("Loaded dedup checkpoint {} with {} records", checkpointFile, loaded.getAdded());
+            return loaded;
+        } catch (IOException ex) {
+            logger.warn("Ignoring unreadable dedup checkpoint {}", checkpointFile, ex);
+            return created;
+        }
+    }
+
+    /*
+    true if the record has already been written to Cassandra, with the false positive rate of the filter
+     */
+    public boolean isPersisted(Media media) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return false;
+        }
+        checked.incrementAndGet();
+        long[] hash = hash(media);
+        if (current.mightContain(hash[0], hash[1])) {
+            skipped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /*
+    called once Cassandra has acknowledged the record
+     */
+    public void persisted(Media media) {
+        BloomFilter current = filter;
+        if (current != null) {
+            long[] hash = hash(media);
+            current.put(hash[0], hash[1]);
+        }
+    }
+
+    private static long[] hash(Media media) {
+        return BloomFilter.murmur3(MediaBinaryCodec.encode(media));
+    }
+
+    /*
+    written next to the checkpoint and moved over it, so a crash while writing leaves the previous checkpoint intact
+     */
+    public synchronized void checkpoint() throws IOException {
+        BloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+        Path parent = checkpointFile.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            current.writeTo(out);
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Failed to write dedup checkpoint {}", checkpointFile, ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+        }
+        checkpointQuietly();
+    }
+
+    /*
+    called by Spring Boot with the registry of /actuator/prometheus
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(MediaMetrics.DEDUP_HIT_RATE, this, deduplicator -> deduplicator.stats().getHitRate())
+                .description("share of the records looked up that were skipped as already written")
+                .register(registry);
+        Gauge.builder(MediaMetrics.DEDUP_RECORDS, this, deduplicator -> deduplicator.stats().getRecords())
+                .description("records in the Bloom filter, including those of the loaded checkpoint")
+                .register(registry);
+        Gauge.builder(MediaMetrics.DEDUP_FALSE_POSITIVE_RATE, this,
+                deduplicator -> deduplicator.stats().getExpectedFalsePositiveRate())
+                .description("false positive rate of the Bloom filter at its current fill")
+                .register(registry);
+    }
+
+    public Stats stats() {
+        BloomFilter current = filter;
+        return new Stats(current != null, checked.get(), skipped.get(),
+                current == null ? 0 : current.getAdded(),
+                falsePositiveRate,
+                current == null ? 0 : current.expectedFalsePositiveRate());
+    }
+
+    /*
+    returned as json by GET /media/dedup, the rates are also the media.dedup.* gauges
+     */
+    public static class Stats {
+
+        private final boolean enabled;
+        private final long checked;
+        private final long skipped;
+        private final long records;
+        private final double configuredFalsePositiveRate;
+        private final double expectedFalsePositiveRate;
+
+        public Stats(boolean enabled, long checked, long skipped, long records,
+                     double configuredFalsePositiveRate, double expectedFalsePositiveRate) {
+            this.enabled = enabled;
+            this.checked = checked;
+            this.skipped = skipped;
+            this.records = records;
+            this.configuredFalsePositiveRate = configuredFalsePositiveRate;
+            this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /*
+        records looked up since the start
+         */
+        public long getChecked() {
+            return checked;
+        }
+
+        /*
+        records skipped as already written
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public double getHitRate() {
+            return checked == 0 ? 0 : (double) skipped / checked;
+        }
+
+        /*
+        records added to the filter, including those of the loaded checkpoint
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        public double getConfiguredFalsePositiveRate() {
+            return configuredFalsePositiveRate;
+        }
+
+        /*
+        the false positive rate at the current fill of the filter, above the configured rate once more records than
+        cassandra.dedup-expected-records have been added
+         */
+        public double getExpectedFalsePositiveRate() {
+            return expectedFalsePositiveRate;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/*
+Walks videos_by_title_year page by page with the driver's paging state, for listings too large to hold in memory. Only
+the current page and the one being fetched are on the heap: the next page is requested before the rows of the current
+one are handed out, so fetching overlaps with writing them to the client.
+Where a listing stops early, at maxPages, it returns a page token. The token is the paging state of the next page,
+base64 encoded, and continues the same query when passed back; it is opaque to clients but not signed.
+ */
+@Component
+public class MediaPager {
+
+    public static final int MAX_PAGE_SIZE = 5000;
+
+    static final String SELECT_ALL_CQL =
+            "SELECT TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID FROM KAFKA_EXAMPLES.VIDEOS_BY_TITLE_YEAR";
+
+    /*
+    added_year is only part of the partition key, so a year listing scans the table like the full listing and filters
+     */
+    static final String SELECT_BY_YEAR_CQL = SELECT_ALL_CQL + " WHERE ADDED_YEAR=? ALLOW FILTERING";
+
+    private final CqlSession session;
+
+    private PreparedStatement selectAll;
+    private PreparedStatement selectByYear;
+
+    public MediaPager(@Lazy CqlSession session) {
+        this.session = session;
+    }
+
+    /*
+    receives the rows of a listing
+     */
+    public interface Rows {
+
+        void row(Media media) throws IOException;
+
+        /*
+        after the last row of every page, e.g. to flush what has been written
+         */
+        void endOfPage() throws IOException;
+    }
+
+    /*
+    Hands every row of the listing to rows, all years when year is null, starting where pageToken points to or at the
+    beginning. Stops after maxPages pages when maxPages is above 0. Returns the token of the next page, or null once the
+    listing is complete.
+     */
+    public String stream(Integer year, String pageToken, int pageSize, int maxPages, Rows rows)
+            throws IOException {
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE + " but was " + pageSize);
+        }
+        BoundStatement statement = year == null ? selectAll().bind() : selectByYear().bind(year);
+        statement = statement.setPageSize(pageSize);
+        if (pageToken != null) {
+            statement = statement.setPagingState(decodePageToken(pageToken));
+        }
+
+        AsyncResultSet page = await(session.executeAsync(statement));
+        int pages = 0;
+        while (true) {
+            pages++;
+            boolean more = page.hasMorePages();
+            boolean stop = more && maxPages > 0 && pages >= maxPages;
+            CompletionStage<AsyncResultSet> next = more && !stop ? page.fetchNextPage() : null;
+
+            for (Row row : page.currentPage()) {
+                rows.row(toMedia(row));
+            }
+            rows.endOfPage();
+
+            if (!more) {
+                return null;
+            }
+            if (stop) {
+                return encodePageToken(page.getExecutionInfo().getPagingState());
+            }
+            page = await(next);
+        }
+    }
+
+    public static Media toMedia(Row row) {
+        return new Media(
+                row.getString("title"),
+                row.getInt("added_year"),
+                row.getInstant("added_date"),
+                row.getString("description"),
+                row.getUuid("user_id"),
+                row.getUuid("video_id"));
+    }
+
+    public static String encodePageToken(ByteBuffer pagingState) {
+        ByteBuffer state = pagingState.duplicate();
+        byte[] bytes = new byte[state.remaining()];
+        state.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /*
+    throws an IllegalArgumentException for a token that is not valid base64
+     */
+    public static ByteBuffer decodePageToken(String pageToken) {
+        return ByteBuffer.wrap(Base64.getUrlDecoder().decode(pageToken));
+    }
+
+    private static AsyncResultSet await(CompletionStage<AsyncResultSet> page) throws IOException {
+        try {
+            return page.toCompletableFuture().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching a page of media");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException("Failed to fetch a page of media", ex.getCause());
+        }
+    }
+
+    /*
+    prepares both listings ahead of the first one, see CassandraWarmup
+     */
+    public void prepare() {
+        selectAll();
+        selectByYear();
+    }
+
+    private synchronized PreparedStatement selectAll() {
+        if (selectAll == null) {
+            selectAll = session.prepare(SELECT_ALL_CQL);
+        }
+        return selectAll;
+    }
+
+    private synchronized PreparedStatement selectByYear() {
+        if (selectByYear == null) {
+            selectByYear = session.prepare(SELECT_BY_YEAR_CQL);
+        }
+        return selectByYear;
+    }
+}
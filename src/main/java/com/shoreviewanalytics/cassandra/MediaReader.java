@@ -0,0 +1,218 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shoreviewanalytics.config.AppConfig;
+import com.shoreviewanalytics.kafka.domain.Media;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/*
+Reads the rows of one (title, added_year) partition of videos_by_title_year with a prepared SELECT, through a size bounded
+cache whose entries expire cassandra.read-cache-ttl-ms after they were loaded. Concurrent misses for the same partition
+share one query. The listener invalidates a partition when it writes a row of it, so a read after the write sees the row;
+a load that was already running when the row was written can still cache the older rows, for at most the ttl.
+The hits, misses, evictions and load times of the cache are published as the cache.* meters tagged cache=media.read.
+ */
+@Component
+public class MediaReader implements MeterBinder {
+
+    public static final String CACHE = "media.read";
+
+    static final String SELECT_CQL =
+            "SELECT TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID FROM KAFKA_EXAMPLES.VIDEOS_BY_TITLE_YEAR " +
+            "WHERE TITLE=? AND ADDED_YEAR=?";
+
+    private final AsyncLoadingCache<Key, List<Media>> cache;
+    private final BiFunction<String, Integer, CompletionStage<List<Media>>> loader;
+
+    private CqlSession session;
+    private PreparedStatement selectStatement;
+
+    @Autowired
+    public MediaReader(@Lazy CqlSession session, AppConfig config) {
+        this.session = session;
+        this.loader = this::select;
+        this.cache = buildCache(config.getReadCacheMaxEntries(), config.getReadCacheTtlMs(), Ticker.systemTicker());
+    }
+
+    /*
+    with any loader in place of Cassandra, e.g. in tests
+     */
+    public MediaReader(BiFunction<String, Integer, CompletionStage<List<Media>>> loader,
+                       long maxEntries, long ttlMs, Ticker ticker) {
+        this.loader = loader;
+        this.cache = buildCache(maxEntries, ttlMs, ticker);
+    }
+
+    private AsyncLoadingCache<Key, List<Media>> buildCache(long maxEntries, long ttlMs, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync((key, executor) -> loader.apply(key.title, key.year).toCompletableFuture());
+    }
+
+    /*
+    the rows of the partition, an empty list if there are none
+     */
+    public CompletableFuture<List<Media>> find(String title, int year) {
+        return cache.get(new Key(title, year));
+    }
+
+    public void invalidate(String title, int year) {
+        cache.synchronous().invalidate(new Key(title, year));
+    }
+
+    /*
+    the uncached query
+     */
+    public CompletionStage<List<Media>> select(String title, Integer year) {
+        CqlSession session = this.session;
+        return session.executeAsync(selectStatement(session).bind(title, year))
+                .thenCompose(resultSet -> collect(resultSet, new ArrayList<>()));
+    }
+
+    /*
+    follows the pages of a partition too large for a single response
+     */
+    private static CompletionStage<List<Media>> collect(AsyncResultSet resultSet, List<Media> rows) {
+        for (Row row : resultSet.currentPage()) {
+            rows.add(MediaPager.toMedia(row));
+        }
+        if (resultSet.hasMorePages()) {
+            return resultSet.fetchNextPage().thenCompose(next -> collect(next, rows));
+        }
+        return CompletableFuture.completedFuture(Collections.unmodifiableList(rows));
+    }
+
+    /*
+    prepares the select ahead of the first read, see CassandraWarmup
+     */
+    public void prepare() {
+        selectStatement(session);
+    }
+
+    private synchronized PreparedStatement selectStatement(CqlSession session) {
+        if (selectStatement == null) {
+            selectStatement = session.prepare(SELECT_CQL);
+        }
+        return selectStatement;
+    }
+
+    /*
+    called by Spring Boot with the registry of /actuator/prometheus
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), CACHE);
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.loadFailureCount(),
+                stats.averageLoadPenalty() / 1_000_000.0, cache.synchronous().estimatedSize());
+    }
+
+    private static final class Key {
+
+        private final String title;
+        private final int year;
+
+        Key(String title, int year) {
+            this.title = title;
+            this.year = year;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return year == key.year && Objects.equals(title, key.title);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(title) + year;
+        }
+    }
+
+    /*
+    returned as json by GET /media/cache, a view of the same numbers as the cache.* meters
+     */
+    public static class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long loadFailures;
+        private final double averageLoadMs;
+        private final long size;
+
+        public Stats(long hits, long misses, long evictions, long loadFailures, double averageLoadMs, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.loadFailures = loadFailures;
+            this.averageLoadMs = averageLoadMs;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        /*
+        entries removed for size or age, invalidations are not counted
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getLoadFailures() {
+            return loadFailures;
+        }
+
+        /*
+        average time of a Cassandra query behind a miss
+         */
+        public double getAverageLoadMs() {
+            return averageLoadMs;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+Where the media listener writes the records of a poll. CassandraMediaSink is the only implementation the application
+uses; the load test replaces it with an in-process sink that emulates the latency and the errors of Cassandra, so the
+Kafka side of the pipeline can be sized without a cluster.
+ */
+public interface MediaSink {
+
+    /*
+    Starts writing the records and returns one future per record, in the order of the given records, that completes when
+    the record is stored or exceptionally when it could not be. Must not block the listener thread: writes beyond what
+    the sink keeps outstanding wait in its backlog, reported through getBacklog.
+     */
+    CompletableFuture<?>[] writeAsync(List<Media> records);
+
+    /*
+    records accepted but not yet sent because too many writes are outstanding; the listener pauses its partitions while
+    this is high, see WriteBackpressure
+     */
+    default int getBacklog() {
+        return 0;
+    }
+}
@@ -1,27 +1,245 @@
 package com.shoreviewanalytics.cassandra;
 
 import com.datastax.oss.driver.api.core.CqlSession;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.servererrors.QueryExecutionException;
+import com.shoreviewanalytics.kafka.domain.Media;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.annotation.Configuration;
+import com.shoreviewanalytics.config.AppConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
-@Configuration
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Component
 public class MediaWriter {
 
+    /*
+    The insert is prepared once per session and then only bound for every record. Cassandra parses and plans the
+    statement a single time, the driver knows the partition key columns so it can route each insert to a replica
+    (token-aware routing) and values travel as typed bind variables, so a quote in a description no longer breaks the CQL.
+     */
+    static final String INSERT_CQL =
+            "INSERT INTO KAFKA_EXAMPLES.VIDEOS_BY_TITLE_YEAR(TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID) " +
+            "VALUES(?,?,?,?,?,?)";
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 128;
+    public static final int DEFAULT_MAX_BATCH_ROWS = 50;
+    /*
+    Cassandra warns about batches above batch_size_warn_threshold_in_kb, 5 KB by default
+     */
+    public static final long DEFAULT_MAX_BATCH_BYTES = 5 * 1024;
+
     private CqlSession session;
 
+    private PreparedStatement insertStatement;
+
+    /*
+    inserts sent but not yet answered by Cassandra, within an AIMD limit that shrinks while Cassandra is slow
+     */
+    private final WriteLimiter limiter;
+
+    private final int maxBatchRows;
+
+    private final long maxBatchBytes;
+
     private static Logger logger = LoggerFactory.getLogger(MediaWriter.class);
 
     public MediaWriter() {
+        this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_BATCH_ROWS, DEFAULT_MAX_BATCH_BYTES);
+    }
+
+    @Autowired
+    public MediaWriter(AppConfig config) {
+        this(new AimdLimit(
+                        config.getMinInFlight(),
+                        config.getMaxInFlight(),
+                        TimeUnit.MILLISECONDS.toNanos(config.getWriteLatencyTargetMs()),
+                        AimdLimit.DEFAULT_BACKOFF),
+                config.getMaxBatchRows(),
+                config.getMaxBatchBytes());
+    }
+
+    /*
+    a fixed limit of maxInFlight, as used by the benchmarks
+     */
+    public MediaWriter(int maxInFlight, int maxBatchRows, long maxBatchBytes) {
+        this(fixedLimit(maxInFlight), maxBatchRows, maxBatchBytes);
+    }
+
+    public MediaWriter(AimdLimit limit, int maxBatchRows, long maxBatchBytes) {
+        if (maxBatchRows < 1) {
+            throw new IllegalArgumentException("maxBatchRows must be at least 1 but was " + maxBatchRows);
+        }
+        this.limiter = new WriteLimiter(limit, MediaWriter::isOverload);
+        this.maxBatchRows = maxBatchRows;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public void WriteToCassandra(Media record, CqlSession session) {
+
+            session.execute(bindInsert(record, session));
+
+    }
+
+    /*
+    Writes all records of a poll as one unit: every insert is sent before waiting on any of them, so the batch costs
+    roughly one round-trip instead of one round-trip per record. Returns once Cassandra has acknowledged all of them and
+    fails if any insert failed.
+     */
+    public void WriteToCassandra(List<Media> records, CqlSession session) {
+
+        CompletableFuture.allOf(writeAsync(records, session)).join();
+    }
+
+    private static AimdLimit fixedLimit(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+        }
+        return AimdLimit.fixed(maxInFlight);
+    }
+
+    /*
+    Sends the insert without waiting for Cassandra and without blocking. Once the in-flight limit is reached the insert
+    waits in the backlog of the WriteLimiter until an earlier one is answered; the listener holds back while the backlog
+    is long. The returned future completes when Cassandra has acknowledged this record, or exceptionally when the insert
+    failed. Records that cannot be bound fail here, on the calling thread.
+     */
+    public CompletableFuture<Void> writeAsync(Media record, CqlSession session) {
+
+        return execute(bindInsert(record, session), session);
+    }
+
+    /*
+    Writes the records grouped by their Cassandra partition key (title, added_year). Every group goes out as an UNLOGGED
+    batch of at most maxBatchRows rows and maxBatchBytes bytes, so a partition with many rows costs one request instead of
+    one per row. Batches never span partitions: a multi-partition batch only moves the fan-out to the coordinator.
+    A batch counts as one write in flight and the futures of all its records complete together.
+    Returns one future per record, in the order of the given records; the future of a record that cannot be bound
+    is already failed.
+     */
+    public CompletableFuture<?>[] writeAsync(List<Media> records, CqlSession session) {
+
+        CompletableFuture<?>[] written = new CompletableFuture<?>[records.size()];
+        List<Integer> order = new ArrayList<>(records.size());
+        BoundStatement[] inserts = new BoundStatement[records.size()];
+        for (int i = 0; i < inserts.length; i++) {
+            try {
+                inserts[i] = bindInsert(records.get(i), session);
+                order.add(i);
+            } catch (RuntimeException ex) {
+                // a record that cannot be bound fails alone instead of failing the whole poll
+                CompletableFuture<Void> unbound = new CompletableFuture<>();
+                unbound.completeExceptionally(ex);
+                written[i] = unbound;
+            }
+        }
+
+        List<List<Integer>> batches = PartitionBatches.group(order,
+                i -> partitionKey(inserts[i], i),
+                i -> inserts[i].computeSizeInBytes(session.getContext()),
+                maxBatchRows,
+                maxBatchBytes);
+
+        for (List<Integer> batch : batches) {
+            CompletableFuture<Void> acknowledged;
+            if (batch.size() == 1) {
+                acknowledged = execute(inserts[batch.get(0)], session);
+            } else {
+                BatchStatementBuilder unlogged = BatchStatement.builder(DefaultBatchType.UNLOGGED);
+                for (Integer i : batch) {
+                    unlogged.addStatement(inserts[i]);
+                }
+                acknowledged = execute(unlogged.build(), session);
+            }
+            for (Integer i : batch) {
+                written[i] = acknowledged;
+            }
+        }
+        return written;
+    }
+
+    /*
+    the serialized partition key the driver also uses for token-aware routing
+     */
+    private static Object partitionKey(BoundStatement insert, int index) {
+        ByteBuffer routingKey = insert.getRoutingKey();
+        return routingKey != null ? routingKey : index;
+    }
+
+    private CompletableFuture<Void> execute(Statement<?> statement, CqlSession session) {
+
+        return limiter.submit(() -> session.executeAsync(statement)).thenApply(resultSet -> null);
     }
 
-    public void WriteToCassandra(JsonNode record, CqlSession session) {
+    /*
+    Timeouts and the coordinator's overloaded, unavailable and timeout errors mean Cassandra can not keep up and cut the
+    in-flight limit; other errors, e.g. an invalid value, concern one write only.
+     */
+    static boolean isOverload(Throwable error) {
+        return error instanceof DriverTimeoutException || error instanceof QueryExecutionException;
+    }
+
+    /*
+    Waits until every insert sent so far has been answered, e.g. before closing the session.
+     */
+    public boolean awaitInFlight(long timeout, TimeUnit unit) throws InterruptedException {
+        return limiter.awaitIdle(timeout, unit);
+    }
 
-            session.execute("INSERT INTO KAFKA_EXAMPLES.VIDEOS_BY_TITLE_YEAR(TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID) " + "" +
-                    "VALUES('" + record.get("title").asText() + "'," + record.get("added_year").asText() + ",'" + record.get("added_date").asText() + "','" + record.get("description").asText() + "'," +
-                    "" + record.get("userid").asText() + "," + record.get("videoid").asText() + ");");
+    public int getInFlight() {
+        return limiter.getInFlight();
+    }
 
+    /*
+    inserts waiting for the in-flight limit
+     */
+    public int getBacklog() {
+        return limiter.getBacklog();
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    /*
+    binds the consumed Media directly, its values already have the column types so nothing is parsed here
+     */
+    public BoundStatement bindInsert(Media record, CqlSession session) {
+        return insertStatement(session).boundStatementBuilder()
+                .setString(0, record.getTitle())
+                .setInt(1, record.getAdded_year())
+                .setInstant(2, record.getAdded_date())
+                .setString(3, record.getDescription())
+                .setUuid(4, record.getUserid())
+                .setUuid(5, record.getVideoid())
+                .build();
+    }
+
+    /*
+    prepares the insert for the session ahead of the first write
+     */
+    public void prepare(CqlSession session) {
+        insertStatement(session);
+    }
+
+    private synchronized PreparedStatement insertStatement(CqlSession session) {
+        if (insertStatement == null || this.session != session) {
+            insertStatement = session.prepare(INSERT_CQL);
+            this.session = session;
+        }
+        return insertStatement;
     }
 
 
@@ -36,6 +254,8 @@ public class MediaWriter {
             dbConnector connector = new dbConnector();
             connector.connect(node,port,datacenter,username,password);
             session = connector.getSession();
+            // prepare up front so the first consumed record does not pay for the round-trip
+            insertStatement = session.prepare(INSERT_CQL);
 
         } catch (NullPointerException ex) {
             logger.info("Handle for NullPointerException... " +
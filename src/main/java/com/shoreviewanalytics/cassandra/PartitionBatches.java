@@ -0,0 +1,54 @@
+package com.shoreviewanalytics.cassandra;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/*
+Splits pending writes into single-partition batches. Items are grouped by their partition key, groups keep the order in
+which their first item arrived and items keep their order within a group. A group larger than maxRows rows or maxBytes
+bytes is cut into several batches; an item that is larger than maxBytes on its own still gets a batch of its own.
+A batch never mixes partition keys, which is what keeps an UNLOGGED batch cheap for the coordinator.
+ */
+public final class PartitionBatches {
+
+    private PartitionBatches() {
+    }
+
+    public static <T> List<List<T>> group(List<T> items,
+                                          Function<? super T, ?> partitionKey,
+                                          ToIntFunction<? super T> sizeInBytes,
+                                          int maxRows,
+                                          long maxBytes) {
+
+        if (maxRows < 1) {
+            throw new IllegalArgumentException("maxRows must be at least 1 but was " + maxRows);
+        }
+
+        Map<Object, List<T>> partitions = new LinkedHashMap<>();
+        for (T item : items) {
+            partitions.computeIfAbsent(partitionKey.apply(item), key -> new ArrayList<>()).add(item);
+        }
+
+        List<List<T>> batches = new ArrayList<>(partitions.size());
+        for (List<T> partition : partitions.values()) {
+            List<T> batch = new ArrayList<>();
+            long bytes = 0;
+            for (T item : partition) {
+                int size = sizeInBytes.applyAsInt(item);
+                if (!batch.isEmpty() && (batch.size() >= maxRows || bytes + size > maxBytes)) {
+                    batches.add(batch);
+                    batch = new ArrayList<>();
+                    bytes = 0;
+                }
+                batch.add(item);
+                bytes += size;
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,121 @@
+package com.shoreviewanalytics.cassandra;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+Named sets of table options for videos_by_title_year, selected with cassandra.schema-profile. A profile only provides
+defaults: the compaction, compression chunk, bloom filter and gc_grace settings under cassandra.schema-* still win, see
+SchemaProvisioner. Options are keyed by their CQL names and rendered by the query builder, maps as CQL maps.
+https://cassandra.apache.org/doc/3.11/cassandra/operating/compaction/index.html
+ */
+public enum SchemaProfile {
+
+    /*
+    the Cassandra defaults, kept for comparison; nothing is set or altered
+     */
+    DEFAULT {
+        @Override
+        public Map<String, Object> options() {
+            return new LinkedHashMap<>();
+        }
+    },
+
+    /*
+    For the ingest, where every row is written once and read by partition now and then. Size-tiered compaction writes
+    every row the fewest times, 64 KB compression chunks compress best, and as rows are upserts and never deleted there
+    are next to no tombstones, so gc_grace can be one day, provided repair runs at least once within it.
+     */
+    WRITE_HEAVY {
+        @Override
+        public Map<String, Object> options() {
+            Map<String, Object> options = new LinkedHashMap<>();
+            options.put(COMPACTION, compaction("size-tiered"));
+            options.put(COMPRESSION, lz4(64));
+            options.put(BLOOM_FILTER_FP_CHANCE, 0.01);
+            options.put(GC_GRACE_SECONDS, 86400);
+            return options;
+        }
+    },
+
+    /*
+    For serving reads once the table is loaded: leveled compaction keeps a partition in few sstables, 16 KB chunks
+    decompress less for every row read and a lower bloom filter false positive chance skips more sstables.
+     */
+    READ_HEAVY {
+        @Override
+        public Map<String, Object> options() {
+            Map<String, Object> options = new LinkedHashMap<>();
+            options.put(COMPACTION, compaction("leveled"));
+            options.put(COMPRESSION, lz4(16));
+            options.put(BLOOM_FILTER_FP_CHANCE, 0.001);
+            options.put(GC_GRACE_SECONDS, 864000);
+            return options;
+        }
+    },
+
+    /*
+    For rows that arrive in time order and expire with a TTL: time-window compaction never merges sstables of different
+    days, so whole sstables are dropped once all their rows have expired.
+     */
+    TIME_SERIES {
+        @Override
+        public Map<String, Object> options() {
+            Map<String, Object> options = new LinkedHashMap<>();
+            options.put(COMPACTION, compaction("time-window"));
+            options.put(COMPRESSION, lz4(64));
+            options.put(BLOOM_FILTER_FP_CHANCE, 0.01);
+            options.put(GC_GRACE_SECONDS, 86400);
+            return options;
+        }
+    };
+
+    public static final String COMPACTION = "compaction";
+    public static final String COMPRESSION = "compression";
+    public static final String BLOOM_FILTER_FP_CHANCE = "bloom_filter_fp_chance";
+    public static final String GC_GRACE_SECONDS = "gc_grace_seconds";
+
+    public abstract Map<String, Object> options();
+
+    /*
+    the compaction option of size-tiered, leveled or time-window, with the sub-options Cassandra defaults to
+     */
+    public static Map<String, Object> compaction(String strategy) {
+        Map<String, Object> compaction = new LinkedHashMap<>();
+        switch (strategy.trim().toLowerCase(Locale.ROOT)) {
+            case "size-tiered":
+                compaction.put("class", "SizeTieredCompactionStrategy");
+                compaction.put("min_threshold", 4);
+                compaction.put("max_threshold", 32);
+                break;
+            case "leveled":
+                compaction.put("class", "LeveledCompactionStrategy");
+                compaction.put("sstable_size_in_mb", 160);
+                break;
+            case "time-window":
+                compaction.put("class", "TimeWindowCompactionStrategy");
+                compaction.put("compaction_window_unit", "DAYS");
+                compaction.put("compaction_window_size", 1);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "compaction must be size-tiered, leveled or time-window but was " + strategy);
+        }
+        return compaction;
+    }
+
+    public static Map<String, Object> lz4(int chunkLengthKb) {
+        Map<String, Object> compression = new LinkedHashMap<>();
+        compression.put("class", "LZ4Compressor");
+        compression.put("chunk_length_in_kb", chunkLengthKb);
+        return compression;
+    }
+
+    /*
+    accepts the names as written in application.yml, e.g. write-heavy
+     */
+    public static SchemaProfile fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
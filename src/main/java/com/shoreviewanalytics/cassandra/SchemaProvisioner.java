@@ -0,0 +1,194 @@
+package com.shoreviewanalytics.cassandra;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.shoreviewanalytics.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Description: Brings the keyspace and videos_by_title_year to the schema set under cassandra.schema-*, at startup as a
+ * phase of the CassandraWarmup. The table options wanted are those of the SchemaProfile with the explicit settings on
+ * top. What is missing is created through dbDDL; what exists is compared with the live schema in the driver's metadata
+ * and only the options that differ are altered, so a second run changes nothing. Every change is logged with the live
+ * and the configured value.
+ * Sub-options Cassandra fills in itself, e.g. the compaction thresholds of a strategy, are not compared unless they are
+ * configured, and a class matches whether or not it is given with its package. A new replication is only set on the
+ * keyspace, the data moves to the new replicas with the next repair.
+ */
+@Component
+public class SchemaProvisioner {
+
+    public static final String KEYSPACE = "kafka_examples";
+    public static final String TABLE = "videos_by_title_year";
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SchemaProvisioner.class);
+
+    private final AppConfig config;
+
+    public SchemaProvisioner(AppConfig config) {
+        this.config = config;
+    }
+
+    /*
+    returns the changes made, none if the live schema already is the configured one
+     */
+    public List<String> provision() throws Exception {
+
+        Map<String, Object> options = desiredOptions(config);
+        Map<String, Integer> replication = config.getSchemaReplication();
+        List<String> changes = new ArrayList<>();
+
+        // the keyspace may not exist yet, so this session is not bound to it
+        try (CqlSession session = dbConnector.connect(config, null)) {
+            dbDDL ddl = new dbDDL(session);
+
+            Optional<Map<String, String>> liveReplication = ddl.replication(KEYSPACE);
+            if (!liveReplication.isPresent()) {
+                if (replication.isEmpty()) {
+                    throw new IllegalStateException(
+                            "Keyspace " + KEYSPACE + " does not exist and cassandra.schema-replication is not set");
+                }
+                ddl.createKeyspace(KEYSPACE, replication);
+                changes.add("created keyspace " + KEYSPACE + " with replication " + replication);
+            } else if (!replication.isEmpty() && !replicationMatches(replication, liveReplication.get())) {
+                ddl.alterKeyspace(KEYSPACE, replication);
+                changes.add("altered replication of " + KEYSPACE + " from " + liveReplication.get() + " to "
+                        + replication + ", a repair moves the data to the new replicas");
+            }
+
+            Optional<Map<String, Object>> liveOptions = ddl.tableOptions(KEYSPACE, TABLE);
+            if (!liveOptions.isPresent()) {
+                ddl.createVideoTable(KEYSPACE, TABLE, options);
+                changes.add("created table " + TABLE + " with " + options);
+            } else {
+                Map<String, Object> changed = diff(options, liveOptions.get());
+                ddl.alterTable(KEYSPACE, TABLE, changed);
+                changed.forEach((name, value) -> changes.add(
+                        "altered " + name + " of " + TABLE + " from " + liveOptions.get().get(name) + " to " + value));
+            }
+        }
+
+        if (changes.isEmpty()) {
+            logger.info("Schema of {}.{} matches profile {}", KEYSPACE, TABLE, config.getSchemaProfile());
+        }
+        for (String change : changes) {
+            logger.info("Schema: {}", change);
+        }
+        return changes;
+    }
+
+    /*
+    the options of the profile, overridden by the settings made explicitly
+     */
+    public static Map<String, Object> desiredOptions(AppConfig config) {
+
+        Map<String, Object> options = SchemaProfile.fromName(config.getSchemaProfile()).options();
+        if (config.getSchemaCompaction() != null) {
+            options.put(SchemaProfile.COMPACTION, SchemaProfile.compaction(config.getSchemaCompaction()));
+        }
+        Integer chunkKb = config.getSchemaCompressionChunkKb();
+        if (chunkKb != null) {
+            if (chunkKb < 1 || Integer.bitCount(chunkKb) != 1) {
+                throw new IllegalArgumentException(
+                        "cassandra.schema-compression-chunk-kb must be a power of 2 but was " + chunkKb);
+            }
+            options.put(SchemaProfile.COMPRESSION, SchemaProfile.lz4(chunkKb));
+        }
+        Double fpChance = config.getSchemaBloomFilterFpChance();
+        if (fpChance != null) {
+            if (!(fpChance > 0 && fpChance <= 1)) {
+                throw new IllegalArgumentException(
+                        "cassandra.schema-bloom-filter-fp-chance must be above 0 and at most 1 but was " + fpChance);
+            }
+            options.put(SchemaProfile.BLOOM_FILTER_FP_CHANCE, fpChance);
+        }
+        Integer gcGrace = config.getSchemaGcGraceSeconds();
+        if (gcGrace != null) {
+            if (gcGrace < 0) {
+                throw new IllegalArgumentException(
+                        "cassandra.schema-gc-grace-seconds must not be negative but was " + gcGrace);
+            }
+            options.put(SchemaProfile.GC_GRACE_SECONDS, gcGrace);
+        }
+        return options;
+    }
+
+    /*
+    the wanted options whose live value differs, with their wanted value
+     */
+    public static Map<String, Object> diff(Map<String, Object> wanted, Map<String, Object> live) {
+        Map<String, Object> changed = new LinkedHashMap<>();
+        wanted.forEach((name, value) -> {
+            if (!matches(value, live.get(name))) {
+                changed.put(name, value);
+            }
+        });
+        return changed;
+    }
+
+    /*
+    NetworkTopologyStrategy with exactly the wanted datacenters and replication factors
+     */
+    public static boolean replicationMatches(Map<String, Integer> wanted, Map<String, String> live) {
+        Map<String, String> factors = new LinkedHashMap<>(live);
+        String strategy = factors.remove("class");
+        if (strategy == null || !simpleName(strategy).equals("NetworkTopologyStrategy")) {
+            return false;
+        }
+        Map<String, String> wantedFactors = new LinkedHashMap<>();
+        wanted.forEach((datacenter, factor) -> wantedFactors.put(datacenter, String.valueOf(factor)));
+        return factors.equals(wantedFactors);
+    }
+
+    private static boolean matches(Object wanted, Object live) {
+        if (live == null) {
+            return false;
+        }
+        if (wanted instanceof Map) {
+            if (!(live instanceof Map)) {
+                return false;
+            }
+            Map<?, ?> liveOptions = (Map<?, ?>) live;
+            for (Map.Entry<?, ?> option : ((Map<?, ?>) wanted).entrySet()) {
+                Object liveValue = liveOptions.get(option.getKey());
+                boolean same = "class".equals(option.getKey())
+                        ? liveValue != null && simpleName(liveValue.toString()).equals(simpleName(option.getValue().toString()))
+                        : matches(option.getValue(), liveValue);
+                if (!same) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        BigDecimal wantedNumber = number(wanted);
+        BigDecimal liveNumber = number(live);
+        if (wantedNumber != null && liveNumber != null) {
+            return wantedNumber.compareTo(liveNumber) == 0;
+        }
+        return wanted.toString().equalsIgnoreCase(live.toString());
+    }
+
+    /*
+    the metadata gives numeric sub-options as strings, top level options as numbers
+     */
+    private static BigDecimal number(Object value) {
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
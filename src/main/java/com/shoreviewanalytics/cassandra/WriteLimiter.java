@@ -0,0 +1,155 @@
+package com.shoreviewanalytics.cassandra;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+Keeps the writes in flight within an AimdLimit without blocking the caller. A write submitted while the limit is reached
+waits in the backlog and is sent from the thread that answers an earlier write. The backlog is what the media listener
+watches: while it grows Cassandra takes writes slower than they arrive, and the listener container is paused, see
+WriteBackpressure, instead of the poll thread being blocked.
+One thread at a time sends from the backlog. A write that is answered while it is being sent, e.g. failed right away
+because no node is up or the session is closed, is picked up by the loop of that thread instead of by a nested dispatch,
+so a long backlog does not grow the stack.
+ */
+public class WriteLimiter {
+
+    private final AimdLimit limit;
+    private final Predicate<Throwable> overload;
+
+    private final Object lock = new Object();
+    private final Queue<Write<?>> backlog = new ArrayDeque<>();
+    private int inFlight;
+    private boolean dispatching;
+
+    /*
+    overload tells the errors that mean Cassandra is overloaded, which cut the limit, from errors of a single write
+     */
+    public WriteLimiter(AimdLimit limit, Predicate<Throwable> overload) {
+        this.limit = limit;
+        this.overload = overload;
+    }
+
+    /*
+    Sends the write now if the limit allows it, later otherwise. The returned future completes with the write.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> write) {
+        Write<T> pending = new Write<>(write);
+        synchronized (lock) {
+            backlog.add(pending);
+        }
+        dispatch();
+        return pending.result;
+    }
+
+    private void dispatch() {
+        synchronized (lock) {
+            if (dispatching) {
+                // the thread dispatching looks at the backlog and inFlight again before it stops
+                return;
+            }
+            dispatching = true;
+        }
+        while (true) {
+            Write<?> next;
+            synchronized (lock) {
+                if (backlog.isEmpty() || inFlight >= limit.get()) {
+                    dispatching = false;
+                    return;
+                }
+                next = backlog.poll();
+                inFlight++;
+            }
+            send(next);
+        }
+    }
+
+    private <T> void send(Write<T> write) {
+        long start = System.nanoTime();
+        CompletionStage<T> sent;
+        try {
+            sent = write.write.get();
+        } catch (RuntimeException ex) {
+            answered();
+            write.result.completeExceptionally(ex);
+            return;
+        }
+        sent.whenComplete((value, error) -> {
+            long now = System.nanoTime();
+            limit.onSample(now, now - start, error != null && overload.test(unwrap(error)));
+            answered();
+            if (error != null) {
+                write.result.completeExceptionally(error);
+            } else {
+                write.result.complete(value);
+            }
+            dispatch();
+        });
+    }
+
+    private void answered() {
+        synchronized (lock) {
+            inFlight--;
+            if (inFlight == 0 && backlog.isEmpty()) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error.getCause() != null && error instanceof CompletionException
+                ? error.getCause() : error;
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /*
+    writes waiting for the limit
+     */
+    public int getBacklog() {
+        synchronized (lock) {
+            return backlog.size();
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /*
+    Waits until every submitted write has been answered, e.g. before closing the session.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (inFlight > 0 || !backlog.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    private static final class Write<T> {
+
+        private final Supplier<? extends CompletionStage<T>> write;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Write(Supplier<? extends CompletionStage<T>> write) {
+            this.write = write;
+        }
+    }
+}
@@ -2,9 +2,13 @@ package com.shoreviewanalytics.cassandra;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
 import com.shoreviewanalytics.config.AppConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 
 import javax.net.ssl.SSLContext;
@@ -14,6 +18,7 @@ import java.net.InetSocketAddress;
 import java.security.KeyStore;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 
 @Configuration
 public class dbConnector {
@@ -46,17 +51,84 @@ public class dbConnector {
         return sslContext;
     }
 
+    private static volatile SSLContext sslContext;
+
+    /*
+    The CA certificate is read and the TLS context built once per JVM, every session after the first reuses them.
+    CassandraWarmup loads them while the rest of the application starts.
+     */
+    static SSLContext sslContext() throws Exception {
+        SSLContext context = sslContext;
+        if (context == null) {
+            synchronized (dbConnector.class) {
+                if (sslContext == null) {
+                    sslContext = loadCaCert();
+                }
+                context = sslContext;
+            }
+        }
+        return context;
+    }
+
     private CqlSession session;
 
-    void connect(String node, Integer port, String datacenter, String username, String password) throws Exception {
+    /*
+    The one session of the application. A CqlSession is thread-safe and holds the connection pools to every node, so it
+    is built once from AppConfig and shared by the writer and the listener; Spring closes it on shutdown. It is lazy so
+    the application, and the embedded Kafka tests, start without a reachable cluster; the connection is opened on first use,
+    or by CassandraWarmup at startup when cassandra.warmup-enabled is true.
+     */
+    @Bean(destroyMethod = "close")
+    @Lazy
+    public CqlSession cqlSession() throws Exception {
+        session = connect(config);
+        return session;
+    }
+
+    static CqlSession connect(AppConfig config) throws Exception {
+        return connect(config, "KAFKA_EXAMPLES");
+    }
+
+    /*
+    a session bound to the keyspace, or to none if keyspace is null, e.g. to create the keyspace, see SchemaProvisioner
+     */
+    static CqlSession connect(AppConfig config, String keyspace) throws Exception {
 
         CqlSessionBuilder builder = CqlSession.builder();
-        builder.withAuthCredentials(username,password);
-        builder.withSslContext(loadCaCert());
-        builder.addContactPoint(new InetSocketAddress(node, port));
-        builder.withLocalDatacenter(datacenter);
-        builder.withKeyspace("KAFKA_EXAMPLES");
-        session = builder.build();
+        builder.withConfigLoader(poolConfig(config));
+        builder.withAuthCredentials(config.getUsername(), config.getPassword());
+        builder.withSslContext(sslContext());
+        builder.addContactPoint(new InetSocketAddress(config.getNode(), config.getPort()));
+        builder.withLocalDatacenter(config.getDatacenter());
+        if (keyspace != null) {
+            builder.withKeyspace(keyspace);
+        }
+        return builder.build();
+    }
+
+    /*
+    Connection pool settings, everything else keeps the driver defaults from its reference.conf.
+    https://docs.datastax.com/en/developer/java-driver/4.2/manual/core/pooling/
+     */
+    private static DriverConfigLoader poolConfig(AppConfig config) {
+        return DriverConfigLoader.programmaticBuilder()
+                .withInt(DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE, config.getConnectionsPerHost())
+                .withInt(DefaultDriverOption.CONNECTION_POOL_REMOTE_SIZE, config.getRemoteConnectionsPerHost())
+                .withInt(DefaultDriverOption.CONNECTION_MAX_REQUESTS, config.getMaxRequestsPerConnection())
+                .withDuration(DefaultDriverOption.REQUEST_TIMEOUT, Duration.ofMillis(config.getRequestTimeoutMs()))
+                .withDuration(DefaultDriverOption.HEARTBEAT_INTERVAL, Duration.ofMillis(config.getHeartbeatIntervalMs()))
+                .build();
+    }
+
+    void connect(String node, Integer port, String datacenter, String username, String password) throws Exception {
+
+        AppConfig standalone = new AppConfig();
+        standalone.setNode(node);
+        standalone.setPort(port);
+        standalone.setDatacenter(datacenter);
+        standalone.setUsername(username);
+        standalone.setPassword(password);
+        session = connect(standalone);
     }
 
     CqlSession getSession() {
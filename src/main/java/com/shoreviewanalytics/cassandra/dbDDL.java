@@ -4,11 +4,18 @@ import com.datastax.oss.driver.api.core.CqlIdentifier;
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.datastax.oss.driver.api.core.type.DataTypes;
 import com.datastax.oss.driver.api.querybuilder.SchemaBuilder;
+import com.datastax.oss.driver.api.querybuilder.schema.AlterTableWithOptionsEnd;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateKeyspace;
 import com.datastax.oss.driver.api.querybuilder.schema.CreateTableWithOptions;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 public class dbDDL {
     private final CqlSession session;
 
@@ -24,6 +31,26 @@ public class dbDDL {
         session.execute(createKeyspace.build());
     }
 
+    /*
+    NetworkTopologyStrategy with a replication factor per datacenter; an existing keyspace is left as it is
+     */
+    public void createKeyspace(String keyspaceName, Map<String, Integer> replicationByDatacenter) {
+        CreateKeyspace createKeyspace = SchemaBuilder.createKeyspace(keyspaceName)
+                .ifNotExists()
+                .withNetworkTopologyStrategy(replicationByDatacenter);
+
+        session.execute(createKeyspace.build());
+    }
+
+    /*
+    only changes the replication settings, the existing data is streamed to new replicas by a repair
+     */
+    public void alterKeyspace(String keyspaceName, Map<String, Integer> replicationByDatacenter) {
+        session.execute(SchemaBuilder.alterKeyspace(keyspaceName)
+                .withNetworkTopologyStrategy(replicationByDatacenter)
+                .build());
+    }
+
     public void useKeyspace(String keyspace) {
         session.execute("USE " + CqlIdentifier.fromCql(keyspace));
     }
@@ -36,6 +63,13 @@ public class dbDDL {
         executeStatement(createTable.build(), keyspace);
     }
     public void createVideoTable(String keyspace, String tablename) {
+        createVideoTable(keyspace, tablename, Collections.emptyMap());
+    }
+
+    /*
+    with table options keyed by their CQL names, e.g. those of a SchemaProfile; an existing table is left as it is
+     */
+    public void createVideoTable(String keyspace, String tablename, Map<String, Object> options) {
 
         CreateTableWithOptions createTable = SchemaBuilder.createTable(keyspace, tablename).ifNotExists()
                 .withPartitionKey("title", DataTypes.TEXT)
@@ -44,10 +78,51 @@ public class dbDDL {
                 .withColumn("description", DataTypes.TEXT)
                 .withColumn("user_id",DataTypes.UUID)
                 .withColumn("video_id",DataTypes.TIMEUUID);
+        for (Map.Entry<String, Object> option : options.entrySet()) {
+            createTable = createTable.withOption(option.getKey(), option.getValue());
+        }
 
         executeStatement(createTable.build(), keyspace);
     }
 
+    /*
+    sets the given options on an existing table, an option given as a map replaces all of its sub-options
+     */
+    public void alterTable(String keyspace, String tablename, Map<String, Object> options) {
+        if (options.isEmpty()) {
+            return;
+        }
+        AlterTableWithOptionsEnd alterTable = null;
+        for (Map.Entry<String, Object> option : options.entrySet()) {
+            alterTable = alterTable == null
+                    ? SchemaBuilder.alterTable(keyspace, tablename).withOption(option.getKey(), option.getValue())
+                    : alterTable.withOption(option.getKey(), option.getValue());
+        }
+
+        executeStatement(alterTable.build(), keyspace);
+    }
+
+    /*
+    the replication of the keyspace as the live schema has it, e.g. class and one replication factor per datacenter;
+    empty if there is no such keyspace
+     */
+    public Optional<Map<String, String>> replication(String keyspace) {
+        return session.getMetadata().getKeyspace(keyspace).map(KeyspaceMetadata::getReplication);
+    }
+
+    /*
+    the options of the table as the live schema has it, keyed by their CQL names; empty if there is no such table
+     */
+    public Optional<Map<String, Object>> tableOptions(String keyspace, String tablename) {
+        return session.getMetadata().getKeyspace(keyspace)
+                .flatMap(metadata -> metadata.getTable(tablename))
+                .map(table -> {
+                    Map<String, Object> options = new LinkedHashMap<>();
+                    table.getOptions().forEach((name, value) -> options.put(name.asInternal(), value));
+                    return options;
+                });
+    }
+
     private ResultSet executeStatement(SimpleStatement statement, String keyspace) {
         if (keyspace != null) {
             statement.setKeyspace(CqlIdentifier.fromCql(keyspace));
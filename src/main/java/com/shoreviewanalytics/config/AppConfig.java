@@ -3,6 +3,12 @@ package com.shoreviewanalytics.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @ConfigurationProperties("cassandra")
 public class AppConfig {
@@ -20,6 +26,64 @@ public class AppConfig {
     private String datacenter;
     private String username;
     private String password;
+    /*
+    Bounds of the AIMD limit on inserts sent to Cassandra that have not been acknowledged yet, see AimdLimit. The limit
+    starts at max-in-flight and is cut while writes take longer than write-latency-target-ms.
+     */
+    private Integer maxInFlight = 128;
+    private Integer minInFlight = 8;
+    private Long writeLatencyTargetMs = 50L;
+    /*
+    single-partition UNLOGGED batches, a value of 1 row turns batching off
+     */
+    private Integer maxBatchRows = 50;
+    private Long maxBatchBytes = 5120L;
+    /*
+    driver connection pool, see dbConnector
+     */
+    private Integer connectionsPerHost = 1;
+    private Integer remoteConnectionsPerHost = 1;
+    private Integer maxRequestsPerConnection = 1024;
+    private Long requestTimeoutMs = 2000L;
+    private Long heartbeatIntervalMs = 30000L;
+    /*
+    Bloom filter of records already written, see MediaDeduplicator. Off unless dedup-enabled is true; a false positive
+    skips a record that was never written, so the rate has to be chosen for the expected number of records.
+     */
+    private Boolean dedupEnabled = false;
+    private Long dedupExpectedRecords = 1000000L;
+    private Double dedupFalsePositiveRate = 0.000001;
+    private String dedupCheckpointFile = "media-dedup.bloom";
+    private Long dedupCheckpointIntervalMs = 60000L;
+    /*
+    cache in front of the reads of GET /media/{title}/{year}, see MediaReader
+     */
+    private Long readCacheMaxEntries = 10000L;
+    private Long readCacheTtlMs = 60000L;
+    /*
+    Connects, prepares the statements and runs the warm-up queries at startup, before the listeners start, see
+    CassandraWarmup. The listeners start after warmup-timeout-ms even if the warm-up has not finished. A failed
+    warm-up is run again after warmup-retry-ms, doubling up to warmup-retry-max-ms, until the path is hot.
+     */
+    private Boolean warmupEnabled = false;
+    private Long warmupTimeoutMs = 30000L;
+    private List<String> warmupQueries = new ArrayList<>(Collections.singletonList("SELECT release_version FROM system.local"));
+    private Integer warmupIterations = 16;
+    private Long warmupRetryMs = 5000L;
+    private Long warmupRetryMaxMs = 60000L;
+    /*
+    Creates the keyspace and videos_by_title_year if they are missing and alters the table options and the replication
+    that differ from the configured ones, as part of the warm-up, see SchemaProvisioner. The options are those of
+    schema-profile, see SchemaProfile, with the settings below on top where they are set; schema-replication holds the
+    NetworkTopologyStrategy replication factor per datacenter.
+     */
+    private Boolean schemaEnabled = false;
+    private String schemaProfile = "default";
+    private String schemaCompaction;
+    private Integer schemaCompressionChunkKb;
+    private Double schemaBloomFilterFpChance;
+    private Integer schemaGcGraceSeconds;
+    private Map<String, Integer> schemaReplication = new LinkedHashMap<>();
 
     public Integer getPort() {
         return port;
@@ -53,12 +117,243 @@ public class AppConfig {
         this.password = password;
     }
 
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
 
+    public void setMaxInFlight(Integer maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
 
+    public Integer getMinInFlight() {
+        return minInFlight;
+    }
 
+    public void setMinInFlight(Integer minInFlight) {
+        this.minInFlight = minInFlight;
+    }
 
+    public Long getWriteLatencyTargetMs() {
+        return writeLatencyTargetMs;
+    }
 
+    public void setWriteLatencyTargetMs(Long writeLatencyTargetMs) {
+        this.writeLatencyTargetMs = writeLatencyTargetMs;
+    }
 
+    public Integer getMaxBatchRows() {
+        return maxBatchRows;
+    }
 
-}
+    public void setMaxBatchRows(Integer maxBatchRows) {
+        this.maxBatchRows = maxBatchRows;
+    }
+
+    public Long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(Long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public Integer getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    public void setConnectionsPerHost(Integer connectionsPerHost) {
+        this.connectionsPerHost = connectionsPerHost;
+    }
+
+    public Integer getRemoteConnectionsPerHost() {
+        return remoteConnectionsPerHost;
+    }
+
+    public void setRemoteConnectionsPerHost(Integer remoteConnectionsPerHost) {
+        this.remoteConnectionsPerHost = remoteConnectionsPerHost;
+    }
+
+    public Integer getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public void setMaxRequestsPerConnection(Integer maxRequestsPerConnection) {
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    public Long getRequestTimeoutMs() {
+        return requestTimeoutMs;
+    }
+
+    public void setRequestTimeoutMs(Long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    public Long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public void setHeartbeatIntervalMs(Long heartbeatIntervalMs) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    public Boolean getDedupEnabled() {
+        return dedupEnabled;
+    }
+
+    public void setDedupEnabled(Boolean dedupEnabled) {
+        this.dedupEnabled = dedupEnabled;
+    }
+
+    public Long getDedupExpectedRecords() {
+        return dedupExpectedRecords;
+    }
+
+    public void setDedupExpectedRecords(Long dedupExpectedRecords) {
+        this.dedupExpectedRecords = dedupExpectedRecords;
+    }
+
+    public Double getDedupFalsePositiveRate() {
+        return dedupFalsePositiveRate;
+    }
+
+    public void setDedupFalsePositiveRate(Double dedupFalsePositiveRate) {
+        this.dedupFalsePositiveRate = dedupFalsePositiveRate;
+    }
+
+    public String getDedupCheckpointFile() {
+        return dedupCheckpointFile;
+    }
+
+    public void setDedupCheckpointFile(String dedupCheckpointFile) {
+        this.dedupCheckpointFile = dedupCheckpointFile;
+    }
+
+    public Long getDedupCheckpointIntervalMs() {
+        return dedupCheckpointIntervalMs;
+    }
+
+    public void setDedupCheckpointIntervalMs(Long dedupCheckpointIntervalMs) {
+        this.dedupCheckpointIntervalMs = dedupCheckpointIntervalMs;
+    }
+
+    public Long getReadCacheMaxEntries() {
+        return readCacheMaxEntries;
+    }
+
+    public void setReadCacheMaxEntries(Long readCacheMaxEntries) {
+        this.readCacheMaxEntries = readCacheMaxEntries;
+    }
+
+    public Long getReadCacheTtlMs() {
+        return readCacheTtlMs;
+    }
+
+    public void setReadCacheTtlMs(Long readCacheTtlMs) {
+        this.readCacheTtlMs = readCacheTtlMs;
+    }
+
+    public Boolean getWarmupEnabled() {
+        return warmupEnabled;
+    }
+
+    public void setWarmupEnabled(Boolean warmupEnabled) {
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    public Long getWarmupTimeoutMs() {
+        return warmupTimeoutMs;
+    }
+
+    public void setWarmupTimeoutMs(Long warmupTimeoutMs) {
+        this.warmupTimeoutMs = warmupTimeoutMs;
+    }
+
+    public List<String> getWarmupQueries() {
+        return warmupQueries;
+    }
+
+    public void setWarmupQueries(List<String> warmupQueries) {
+        this.warmupQueries = warmupQueries;
+    }
+
+    public Integer getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public void setWarmupIterations(Integer warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public Long getWarmupRetryMs() {
+        return warmupRetryMs;
+    }
+
+    public void setWarmupRetryMs(Long warmupRetryMs) {
+        this.warmupRetryMs = warmupRetryMs;
+    }
+
+    public Long getWarmupRetryMaxMs() {
+        return warmupRetryMaxMs;
+    }
+
+    public void setWarmupRetryMaxMs(Long warmupRetryMaxMs) {
+        this.warmupRetryMaxMs = warmupRetryMaxMs;
+    }
 
+    public Boolean getSchemaEnabled() {
+        return schemaEnabled;
+    }
+
+    public void setSchemaEnabled(Boolean schemaEnabled) {
+        this.schemaEnabled = schemaEnabled;
+    }
+
+    public String getSchemaProfile() {
+        return schemaProfile;
+    }
+
+    public void setSchemaProfile(String schemaProfile) {
+        this.schemaProfile = schemaProfile;
+    }
+
+    public String getSchemaCompaction() {
+        return schemaCompaction;
+    }
+
+    public void setSchemaCompaction(String schemaCompaction) {
+        this.schemaCompaction = schemaCompaction;
+    }
+
+    public Integer getSchemaCompressionChunkKb() {
+        return schemaCompressionChunkKb;
+    }
+
+    public void setSchemaCompressionChunkKb(Integer schemaCompressionChunkKb) {
+        this.schemaCompressionChunkKb = schemaCompressionChunkKb;
+    }
+
+    public Double getSchemaBloomFilterFpChance() {
+        return schemaBloomFilterFpChance;
+    }
+
+    public void setSchemaBloomFilterFpChance(Double schemaBloomFilterFpChance) {
+        this.schemaBloomFilterFpChance = schemaBloomFilterFpChance;
+    }
+
+    public Integer getSchemaGcGraceSeconds() {
+        return schemaGcGraceSeconds;
+    }
+
+    public void setSchemaGcGraceSeconds(Integer schemaGcGraceSeconds) {
+        this.schemaGcGraceSeconds = schemaGcGraceSeconds;
+    }
+
+    public Map<String, Integer> getSchemaReplication() {
+        return schemaReplication;
+    }
+
+    public void setSchemaReplication(Map<String, Integer> schemaReplication) {
+        this.schemaReplication = schemaReplication;
+    }
+}
@@ -0,0 +1,285 @@
+package com.shoreviewanalytics.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+The shape of the media topic and how it is consumed, from tpd.topic, tpd.consumer and tpd.retry in application.yml. The values
+depend on each other, so they are checked together when the application starts and a bad combination stops the startup
+instead of showing up as idle threads or poll timeouts later.
+ */
+@Component
+@ConfigurationProperties("tpd")
+public class KafkaConfig {
+
+    private final Topic topic = new Topic();
+    private final Consumer consumer = new Consumer();
+    private final Retry retry = new Retry();
+
+    public Topic getTopic() {
+        return topic;
+    }
+
+    public Consumer getConsumer() {
+        return consumer;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    /*
+    listener threads for the media topic, 0 means one per core but never more than there are partitions
+     */
+    public int effectiveConcurrency() {
+        if (consumer.getConcurrency() > 0) {
+            return consumer.getConcurrency();
+        }
+        return Math.min(Runtime.getRuntime().availableProcessors(), topic.getPartitions());
+    }
+
+    @PostConstruct
+    public void validate() {
+        require(topic.getPartitions() >= 1, "tpd.topic.partitions must be at least 1");
+        require(topic.getReplicationFactor() >= 1, "tpd.topic.replication-factor must be at least 1");
+        require(consumer.getConcurrency() >= 0, "tpd.consumer.concurrency must not be negative");
+        // a partition is consumed by one thread, threads beyond the partition count would never receive a record
+        require(consumer.getConcurrency() <= topic.getPartitions(),
+                "tpd.consumer.concurrency (" + consumer.getConcurrency() + ") must not exceed tpd.topic.partitions ("
+                        + topic.getPartitions() + ")");
+        require(consumer.getMaxPollRecords() >= 1, "tpd.consumer.max-poll-records must be at least 1");
+        require(consumer.getFetchMinBytes() >= 1, "tpd.consumer.fetch-min-bytes must be at least 1");
+        require(consumer.getFetchMaxWaitMs() >= 0, "tpd.consumer.fetch-max-wait-ms must not be negative");
+        require(consumer.getPollTimeoutMs() >= 1, "tpd.consumer.poll-timeout-ms must be at least 1");
+        require(consumer.getResumeBacklog() >= 0, "tpd.consumer.resume-backlog must not be negative");
+        // a gap between the two keeps a backlog around the mark from pausing and resuming on every poll
+        require(consumer.getResumeBacklog() < consumer.getPauseBacklog(),
+                "tpd.consumer.resume-backlog (" + consumer.getResumeBacklog()
+                        + ") must be below tpd.consumer.pause-backlog (" + consumer.getPauseBacklog() + ")");
+        require(consumer.getResumeCheckMs() >= 1, "tpd.consumer.resume-check-ms must be at least 1");
+        require(consumer.getCommitCount() >= 1, "tpd.consumer.commit-count must be at least 1");
+        require(consumer.getCommitIntervalMs() >= 1, "tpd.consumer.commit-interval-ms must be at least 1");
+        // the broker holds a fetch for up to fetch.max.wait.ms, a poll has to be able to outlast it
+        require(consumer.getFetchMaxWaitMs() < consumer.getMaxPollIntervalMs(),
+                "tpd.consumer.fetch-max-wait-ms (" + consumer.getFetchMaxWaitMs()
+                        + ") must be below tpd.consumer.max-poll-interval-ms (" + consumer.getMaxPollIntervalMs() + ")");
+        long previous = 0;
+        for (Long delay : retry.getDelaysMs()) {
+            // each tier is named after its delay, two tiers with the same delay would share a topic
+            require(delay != null && delay > previous,
+                    "tpd.retry.delays-ms must be positive and increasing, got " + retry.getDelaysMs());
+            previous = delay;
+        }
+        require(retry.getReplayTimeoutMs() >= 1, "tpd.retry.replay-timeout-ms must be at least 1");
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    public static class Topic {
+
+        private int partitions = 3;
+        private short replicationFactor = 1;
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public short getReplicationFactor() {
+            return replicationFactor;
+        }
+
+        public void setReplicationFactor(short replicationFactor) {
+            this.replicationFactor = replicationFactor;
+        }
+    }
+
+    public static class Consumer {
+
+        private int concurrency = 0;
+        /*
+        upper bound on the records handed to the batch listener per poll, i.e. the size of one Cassandra write unit
+         */
+        private int maxPollRecords = 500;
+        /*
+        the listener hands a poll to the writer without waiting for Cassandra and pauses instead, see WriteBackpressure,
+        so this only has to cover binding the records of one poll
+         */
+        private int maxPollIntervalMs = 300000;
+        /*
+        the broker answers a fetch once it has this many bytes or fetch-max-wait-ms has passed, larger values mean fewer
+        and fuller fetches
+         */
+        private int fetchMinBytes = 1;
+        private int fetchMaxWaitMs = 500;
+        /*
+        A paused consumer only sees the resume when its current poll returns, and a poll of paused partitions waits the
+        whole poll timeout, so this bounds how long a pause outlasts the backlog.
+         */
+        private int pollTimeoutMs = 100;
+        /*
+        the media listener is paused once more than pause-backlog records wait for Cassandra and resumed once no more
+        than resume-backlog do, see WriteBackpressure
+         */
+        private int pauseBacklog = 1000;
+        private int resumeBacklog = 250;
+        private int resumeCheckMs = 10;
+        /*
+        offsets are committed up to the records Cassandra acknowledged, for a partition once commit-count of its records
+        have been handled since its last commit or commit-interval-ms has passed, see AcknowledgedOffsets
+         */
+        private int commitCount = 5000;
+        private long commitIntervalMs = 1000;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getMaxPollRecords() {
+            return maxPollRecords;
+        }
+
+        public void setMaxPollRecords(int maxPollRecords) {
+            this.maxPollRecords = maxPollRecords;
+        }
+
+        public int getMaxPollIntervalMs() {
+            return maxPollIntervalMs;
+        }
+
+        public void setMaxPollIntervalMs(int maxPollIntervalMs) {
+            this.maxPollIntervalMs = maxPollIntervalMs;
+        }
+
+        public int getFetchMinBytes() {
+            return fetchMinBytes;
+        }
+
+        public void setFetchMinBytes(int fetchMinBytes) {
+            this.fetchMinBytes = fetchMinBytes;
+        }
+
+        public int getFetchMaxWaitMs() {
+            return fetchMaxWaitMs;
+        }
+
+        public void setFetchMaxWaitMs(int fetchMaxWaitMs) {
+            this.fetchMaxWaitMs = fetchMaxWaitMs;
+        }
+
+        public int getPollTimeoutMs() {
+            return pollTimeoutMs;
+        }
+
+        public void setPollTimeoutMs(int pollTimeoutMs) {
+            this.pollTimeoutMs = pollTimeoutMs;
+        }
+
+        public int getPauseBacklog() {
+            return pauseBacklog;
+        }
+
+        public void setPauseBacklog(int pauseBacklog) {
+            this.pauseBacklog = pauseBacklog;
+        }
+
+        public int getResumeBacklog() {
+            return resumeBacklog;
+        }
+
+        public void setResumeBacklog(int resumeBacklog) {
+            this.resumeBacklog = resumeBacklog;
+        }
+
+        public int getResumeCheckMs() {
+            return resumeCheckMs;
+        }
+
+        public void setResumeCheckMs(int resumeCheckMs) {
+            this.resumeCheckMs = resumeCheckMs;
+        }
+
+        public int getCommitCount() {
+            return commitCount;
+        }
+
+        public void setCommitCount(int commitCount) {
+            this.commitCount = commitCount;
+        }
+
+        public long getCommitIntervalMs() {
+            return commitIntervalMs;
+        }
+
+        public void setCommitIntervalMs(long commitIntervalMs) {
+            this.commitIntervalMs = commitIntervalMs;
+        }
+    }
+
+    public static class Retry {
+
+        /*
+        A record whose Cassandra write failed goes to one delayed retry topic per entry, in order, and after the last one
+        to the dead letter topic, see RetryTopics. Empty sends failed records straight to the dead letter topic.
+         */
+        private List<Long> delaysMs = new ArrayList<>(Arrays.asList(1000L, 10000L, 60000L));
+        /*
+        how long POST /media/dlt/replay may take to read the dead letter topic up to its end
+         */
+        private long replayTimeoutMs = 60000;
+        /*
+        how long MediaRecoverer waits before it sends a forwarded record the broker did not acknowledge again; doubles
+        with every attempt up to forwardBackoffMaxMs
+         */
+        private long forwardBackoffMs = 1000;
+        private long forwardBackoffMaxMs = 30000;
+
+        public List<Long> getDelaysMs() {
+            return delaysMs;
+        }
+
+        public void setDelaysMs(List<Long> delaysMs) {
+            this.delaysMs = delaysMs;
+        }
+
+        public long getReplayTimeoutMs() {
+            return replayTimeoutMs;
+        }
+
+        public void setReplayTimeoutMs(long replayTimeoutMs) {
+            this.replayTimeoutMs = replayTimeoutMs;
+        }
+
+        public long getForwardBackoffMs() {
+            return forwardBackoffMs;
+        }
+
+        public void setForwardBackoffMs(long forwardBackoffMs) {
+            this.forwardBackoffMs = forwardBackoffMs;
+        }
+
+        public long getForwardBackoffMaxMs() {
+            return forwardBackoffMaxMs;
+        }
+
+        public void setForwardBackoffMaxMs(long forwardBackoffMaxMs) {
+            this.forwardBackoffMaxMs = forwardBackoffMaxMs;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.shoreviewanalytics.kafka.consumer;
+
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: Commits the offsets of the media and retry listeners only as far as their records have been handled,
+ * written to Cassandra or forwarded to a retry or the dead letter topic. Writes complete out of order, so for every
+ * partition the offsets handed to the MediaRecordHandler are tracked until their record is handled, and the offset
+ * committed is the lowest one still outstanding, or the one after the last record when none is. A record that was
+ * never handled is consumed again after a restart or a rebalance: delivery is at least once. MediaRecoverer sends a
+ * forward again until the broker acknowledges it, so a record is only left unhandled when the application stops; such
+ * records are counted as media.consume.unhandled.
+ * Commits are coalesced: a partition is committed once tpd.consumer.commit-count of its records have been handled or
+ * tpd.consumer.commit-interval-ms has passed since its last commit, from the consumer thread, after a poll was handed
+ * off or when the container reports it idle, e.g. while it is paused. A partition being revoked is committed right away.
+ * The batch containers run with enable.auto.commit off and AckMode.MANUAL, so nothing else commits, see ReceiverConfig.
+ */
+@Component
+public class AcknowledgedOffsets implements ConsumerAwareRebalanceListener {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(AcknowledgedOffsets.class);
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final MediaMetrics metrics;
+    private final int commitCount;
+    private final long commitIntervalMs;
+
+    public AcknowledgedOffsets(KafkaConfig config, MediaMetrics metrics) {
+        this.metrics = metrics;
+        this.commitCount = config.getConsumer().getCommitCount();
+        this.commitIntervalMs = config.getConsumer().getCommitIntervalMs();
+    }
+
+    /*
+    called on the consumer thread with the records of a poll in the order they were consumed and the futures
+    MediaRecordHandler.handle returned for them
+     */
+    public void track(List<? extends ConsumerRecord<?, ?>> records, CompletableFuture<?>[] handled) {
+        for (int i = 0; i < handled.length; i++) {
+            ConsumerRecord<?, ?> record = records.get(i);
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            // the record completes against the state it was added to, a later assignment of the partition starts afresh
+            PartitionOffsets offsets = partitions.computeIfAbsent(partition, tp -> new PartitionOffsets());
+            long offset = record.offset();
+            offsets.add(offset);
+            handled[i].whenComplete((result, error) -> {
+                if (error == null) {
+                    offsets.handled(offset);
+                } else {
+                    metrics.unhandled();
+                    logger.error("Media record {}@{} was not handled, its offset is not committed", partition, offset, error);
+                }
+            });
+        }
+    }
+
+    /*
+    must be called on the thread of the consumer
+     */
+    public void commitIfDue(Consumer<?, ?> consumer) {
+        long now = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> due = new HashMap<>();
+        for (TopicPartition partition : consumer.assignment()) {
+            PartitionOffsets offsets = partitions.get(partition);
+            long offset = offsets == null ? -1 : offsets.takeCommit(now, commitCount, commitIntervalMs);
+            if (offset >= 0) {
+                due.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        metrics.committed();
+        consumer.commitAsync(due, (committed, error) -> {
+            if (error != null) {
+                logger.warn("Could not commit {}, committing again with the next commit", committed, error);
+                committed.forEach((partition, offset) -> {
+                    PartitionOffsets offsets = partitions.get(partition);
+                    if (offsets != null) {
+                        offsets.commitFailed(offset.offset());
+                    }
+                });
+            }
+        });
+    }
+
+    /*
+    published every commit-interval-ms on the consumer thread while a batch container receives no records
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null) {
+            commitIfDue(event.getConsumer());
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        Map<TopicPartition, OffsetAndMetadata> handled = new HashMap<>();
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            long offset = offsets == null ? -1 : offsets.takeCommit(Long.MAX_VALUE, 0, 0);
+            if (offset >= 0) {
+                handled.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        if (!handled.isEmpty()) {
+            try {
+                consumer.commitSync(handled);
+            } catch (KafkaException ex) {
+                logger.warn("Could not commit {} of revoked partitions, their records are consumed again", handled, ex);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        // records still outstanding from an earlier assignment of the partition no longer decide what is committed
+        assigned.forEach(partitions::remove);
+    }
+
+    /*
+    the offset the partition can be committed up to, -1 when it has nothing that was not committed
+     */
+    public long committable(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets == null ? -1 : offsets.committable();
+    }
+
+    private static final class PartitionOffsets {
+
+        private final TreeSet<Long> outstanding = new TreeSet<>();
+        private long next = -1;
+        private long committed = -1;
+        private int handledSinceCommit;
+        private long lastCommitMs = System.currentTimeMillis();
+
+        synchronized void add(long offset) {
+            outstanding.add(offset);
+            next = Math.max(next, offset + 1);
+        }
+
+        synchronized void handled(long offset) {
+            if (outstanding.remove(offset)) {
+                handledSinceCommit++;
+            }
+        }
+
+        synchronized long committable() {
+            return outstanding.isEmpty() ? next : outstanding.first();
+        }
+
+        synchronized long takeCommit(long now, int count, long intervalMs) {
+            long offset = committable();
+            if (offset <= committed || (handledSinceCommit < count && now - lastCommitMs < intervalMs)) {
+                return -1;
+            }
+            committed = offset;
+            handledSinceCommit = 0;
+            lastCommitMs = now;
+            return offset;
+        }
+
+        synchronized void commitFailed(long offset) {
+            if (committed == offset) {
+                committed = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.shoreviewanalytics.kafka.consumer;
+
+import com.shoreviewanalytics.cassandra.MediaDeduplicator;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.cassandra.MediaSink;
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.ingest.IngestRun;
+import com.shoreviewanalytics.kafka.ingest.IngestRuns;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.retry.MediaRecoverer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+Hands consumed media records to the MediaSink, shared by the media listener and the retry listeners. The deserialized
+values are bound as they are, see MediaWriter.bindInsert, rows already written are skipped and nothing waits for
+Cassandra. A record that can not be read or written is passed to the MediaRecoverer instead of being thrown, so one bad
+record never holds up the partition behind it.
+ */
+@Component
+public class MediaRecordHandler {
+
+    private static final CompletableFuture<Void> HANDLED = CompletableFuture.completedFuture(null);
+
+    private final MediaSink mediaSink;
+    private final IngestRuns ingestRuns;
+    private final MediaDeduplicator deduplicator;
+    private final MediaReader mediaReader;
+    private final MediaRecoverer recoverer;
+    private final MediaMetrics metrics;
+
+    public MediaRecordHandler(MediaSink mediaSink, IngestRuns ingestRuns, MediaDeduplicator deduplicator,
+                              MediaReader mediaReader, MediaRecoverer recoverer, MediaMetrics metrics) {
+        this.mediaSink = mediaSink;
+        this.ingestRuns = ingestRuns;
+        this.deduplicator = deduplicator;
+        this.mediaReader = mediaReader;
+        this.recoverer = recoverer;
+        this.metrics = metrics;
+    }
+
+    /*
+    Returns one future per record, in the order of the given records, that completes once the record is handled for good:
+    written, skipped as a duplicate or forwarded to a retry or the dead letter topic and acknowledged there. It completes
+    exceptionally only when the application stops before a forward was acknowledged, the record then must not be
+    committed, see AcknowledgedOffsets.
+     */
+    public CompletableFuture<?>[] handle(List<ConsumerRecord<String, Media>> records) {
+
+        CompletableFuture<?>[] handled = new CompletableFuture<?>[records.size()];
+        List<Integer> positions = new ArrayList<>(records.size());
+        List<Media> values = new ArrayList<>(records.size());
+        List<IngestRun> runs = new ArrayList<>(records.size());
+        for (int i = 0; i < handled.length; i++) {
+            ConsumerRecord<String, Media> cr = records.get(i);
+            IngestRun run = ingestRuns.find(cr.headers());
+            if (cr.value() == null) {
+                DeserializationException unreadable = MediaRecoverer.unreadable(cr);
+                if (unreadable == null) {
+                    handled[i] = HANDLED;
+                    continue;
+                }
+                handled[i] = recoverer.recoverUnreadable(cr, unreadable);
+                if (run != null) {
+                    run.writeFailed(cr.headers());
+                }
+                continue;
+            }
+            if (deduplicator.isPersisted(cr.value())) {
+                metrics.duplicate();
+                if (run != null) {
+                    run.duplicate(cr.headers());
+                }
+                handled[i] = HANDLED;
+                continue;
+            }
+            positions.add(i);
+            values.add(cr.value());
+            runs.add(run);
+        }
+
+        long handOff = System.nanoTime();
+        CompletableFuture<?>[] written = mediaSink.writeAsync(values);
+        for (int i = 0; i < written.length; i++) {
+            ConsumerRecord<String, Media> cr = records.get(positions.get(i));
+            IngestRun run = runs.get(i);
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            handled[positions.get(i)] = done;
+            written[i].whenComplete((result, error) -> {
+                metrics.written(handOff, error == null);
+                if (error != null) {
+                    // this can run on a thread of the Cassandra driver, recover hands the send to its own thread;
+                    // a record on its way through the retry topics still counts as outstanding for its ingest run
+                    recoverer.recover(cr, error).whenComplete((deadLettered, sendError) -> {
+                        if (run != null && (sendError != null || deadLettered)) {
+                            run.writeFailed(cr.headers());
+                        }
+                        if (sendError != null) {
+                            done.completeExceptionally(sendError);
+                        } else {
+                            done.complete(null);
+                        }
+                    });
+                    return;
+                }
+                Media record = cr.value();
+                metrics.persisted(cr.timestamp());
+                deduplicator.persisted(record);
+                mediaReader.invalidate(record.getTitle(), record.getAdded_year());
+                if (run != null) {
+                    run.persisted(cr.headers());
+                }
+                done.complete(null);
+            });
+        }
+        return handled;
+    }
+}
@@ -0,0 +1,51 @@
+package com.shoreviewanalytics.kafka.consumer;
+
+import com.shoreviewanalytics.cassandra.CassandraWarmup;
+import com.shoreviewanalytics.kafka.retry.MediaRetryListeners;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Description: Readiness of the pipeline, the pipeline entry of /actuator/health. It is UP only once the Cassandra path
+ * is hot, see CassandraWarmup, and the media listener and the retry listeners are running. Until then it is
+ * OUT_OF_SERVICE, also while a failed warm-up is run again, with the failure in the details; /actuator/health answers
+ * it with a 503, so a load balancer or a readiness probe keeps traffic away from an instance that is still cold, and
+ * takes it back once the path is hot. The details carry the startup phases in ms.
+ */
+@Component
+public class PipelineHealthIndicator extends AbstractHealthIndicator {
+
+    private final CassandraWarmup warmup;
+    private final KafkaListenerEndpointRegistry listeners;
+    private final MediaRetryListeners retryListeners;
+
+    public PipelineHealthIndicator(CassandraWarmup warmup, KafkaListenerEndpointRegistry listeners,
+                                   MediaRetryListeners retryListeners) {
+        super("Pipeline readiness check failed");
+        this.warmup = warmup;
+        this.listeners = listeners;
+        this.retryListeners = retryListeners;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        boolean listening = retryListeners.isRunning()
+                && listeners.getListenerContainers().stream().allMatch(MessageListenerContainer::isRunning);
+        Throwable failure = warmup.getFailure();
+        builder.withDetail("warmup", !warmup.isEnabled() ? "disabled"
+                : warmup.isHot() ? "hot" : failure != null ? "retrying" : "running");
+        if (failure != null) {
+            builder.withDetail("warmupError", failure.toString());
+        }
+        builder.withDetail("listeners", listening ? "running" : "stopped");
+        builder.withDetail("startupMs", warmup.getPhases());
+        if (warmup.isHot() && listening) {
+            builder.up();
+        } else {
+            builder.outOfService();
+        }
+    }
+}
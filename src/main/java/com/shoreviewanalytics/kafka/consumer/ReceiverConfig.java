@@ -1,6 +1,13 @@
 package com.shoreviewanalytics.kafka.consumer;
 
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.metrics.TimedDeserializer;
+import com.shoreviewanalytics.kafka.serde.MediaBinaryDeserializer;
+import com.shoreviewanalytics.kafka.serde.ValueFormat;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.StickyAssignor;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +17,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer2;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,9 +32,21 @@ public class ReceiverConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Autowired
+    private KafkaConfig kafkaConfig;
+
+    @Autowired
+    private MediaMetrics metrics;
+
+    @Autowired
+    private AcknowledgedOffsets acknowledgedOffsets;
+
+    @Value("${tpd.value-format:json}")
+    private String valueFormat;
+
     @Bean
     public Map<String, Object> consumerConfigs() {
-        Map<String, Object> props = new HashMap<>(kafkaProperties.buildProducerProperties());
+        Map<String, Object> props = new HashMap<>(kafkaProperties.buildConsumerProperties());
 //        props.put("security.protocol", "SSL");
 //        props.put("ssl.endpoint.identification.algorithm", "");
 //        props.put("ssl.truststore.location", "/home/one/Downloads/kafka.service/client.truststore.jks");
@@ -35,18 +56,35 @@ public class ReceiverConfig {
 //        props.put("ssl.keystore.password", "");
 //        props.put("ssl.key.password", "");
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        KafkaConfig.Consumer consumer = kafkaConfig.getConsumer();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, consumer.getMaxPollRecords());
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, consumer.getMaxPollIntervalMs());
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, consumer.getFetchMinBytes());
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, consumer.getFetchMaxWaitMs());
+        // the containers commit, the batch containers only what Cassandra acknowledged, see AcknowledgedOffsets
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // records are keyed by their Cassandra partition, the sticky assignor keeps a Kafka partition, and so the Cassandra
+        // partitions behind it, on the same consumer thread across rebalances where it can
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, StickyAssignor.class.getName());
         return props;
     }
 
-    @Bean // deserialize the consumed json messages
+    /*
+    deserialize the consumed json or binary messages; a value that can not be read is returned as null with the failure in
+    a header instead of failing the poll, which would stop the partition at that record, see MediaRecoverer
+     */
+    @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         final JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
         jsonDeserializer.addTrustedPackages("*");
+        final Deserializer<Object> valueDeserializer = ValueFormat.fromName(valueFormat) == ValueFormat.BINARY
+                ? new MediaBinaryDeserializer(jsonDeserializer)
+                : jsonDeserializer;
         return new DefaultKafkaConsumerFactory<>(
                 //kafkaProperties.buildConsumerProperties(),
                 consumerConfigs(),
                 new StringDeserializer(),
-                jsonDeserializer
+                new ErrorHandlingDeserializer2<>(new TimedDeserializer<>(valueDeserializer, metrics))
         );
     }
 
@@ -102,4 +140,27 @@ public class ReceiverConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
+
+    /*
+    Same consumer setup as above, but the listener receives the whole List<ConsumerRecord> returned by each poll instead of
+    one record per invocation. Used by the media listener so a poll can be written to Cassandra as one unit; the record
+    at a time factory stays in place for listeners that expect single records.
+    Runs tpd.consumer.concurrency consumers, each owning a share of the media topic's partitions. The short poll timeout
+    lets a container paused by WriteBackpressure resume quickly.
+    The listeners commit through AcknowledgedOffsets, so the container's own commits are switched off with AckMode.MANUAL
+    and a listener that never acknowledges; the idle events give the offsets of a paused or quiet container a chance to
+    be committed.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(kafkaConfig.effectiveConcurrency());
+        factory.getContainerProperties().setPollTimeout(kafkaConfig.getConsumer().getPollTimeoutMs());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(kafkaConfig.getConsumer().getCommitIntervalMs());
+        factory.getContainerProperties().setConsumerRebalanceListener(acknowledgedOffsets);
+        return factory;
+    }
 }
@@ -0,0 +1,111 @@
+package com.shoreviewanalytics.kafka.consumer;
+
+import com.shoreviewanalytics.cassandra.MediaSink;
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: Holds the media listener back while Cassandra is slower than Kafka, without blocking its poll thread.
+ * After handing a poll to the MediaSink the listener checks the sink's backlog, the records waiting for the in-flight
+ * limit, and above tpd.consumer.pause-backlog its container is paused: the consumers keep polling, so they stay in
+ * the group and max.poll.interval.ms is never at risk, but the polls return no records. Every
+ * tpd.consumer.resume-check-ms the backlog is checked again and the container is resumed once it is down to
+ * tpd.consumer.resume-backlog, early enough that Cassandra still has writes queued while the next fetch arrives.
+ * The in-flight limit itself adapts to the write latency, see AimdLimit, so under storage pressure the pauses get
+ * longer and the throughput goes down gradually instead of the group rebalancing.
+ */
+@Component
+public class WriteBackpressure {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WriteBackpressure.class);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final MediaSink sink;
+    private final MediaMetrics metrics;
+    private final int pauseBacklog;
+    private final int resumeBacklog;
+    private final long resumeCheckMs;
+
+    /*
+    paused listener containers by id, with the System.nanoTime() of the pause
+     */
+    private final Map<String, Long> paused = new ConcurrentHashMap<>();
+    private ScheduledExecutorService resumer;
+
+    public WriteBackpressure(KafkaListenerEndpointRegistry registry, MediaSink sink, MediaMetrics metrics,
+                             KafkaConfig config) {
+        this.registry = registry;
+        this.sink = sink;
+        this.metrics = metrics;
+        this.pauseBacklog = config.getConsumer().getPauseBacklog();
+        this.resumeBacklog = config.getConsumer().getResumeBacklog();
+        this.resumeCheckMs = config.getConsumer().getResumeCheckMs();
+    }
+
+    @PostConstruct
+    public void start() {
+        resumer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-write-backpressure");
+            thread.setDaemon(true);
+            return thread;
+        });
+        resumer.scheduleWithFixedDelay(this::resumeIfDrained, resumeCheckMs, resumeCheckMs, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    called by the listener on its own thread once it has handed the records of a poll to the sink; the pause takes
+    effect with the next poll
+     */
+    public void afterHandOff(String listenerId) {
+        if (paused.containsKey(listenerId) || sink.getBacklog() <= pauseBacklog) {
+            return;
+        }
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null && paused.putIfAbsent(listenerId, System.nanoTime()) == null) {
+            container.pause();
+            metrics.paused();
+            logger.debug("Paused {}, Cassandra is behind", listenerId);
+        }
+    }
+
+    public boolean isPaused(String listenerId) {
+        return paused.containsKey(listenerId);
+    }
+
+    private void resumeIfDrained() {
+        if (paused.isEmpty() || sink.getBacklog() > resumeBacklog) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : paused.entrySet()) {
+            if (paused.remove(entry.getKey(), entry.getValue())) {
+                MessageListenerContainer container = registry.getListenerContainer(entry.getKey());
+                if (container != null) {
+                    container.resume();
+                }
+                metrics.resumed(entry.getValue());
+                logger.debug("Resumed {}", entry.getKey());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (resumer != null) {
+            resumer.shutdownNow();
+        }
+    }
+}
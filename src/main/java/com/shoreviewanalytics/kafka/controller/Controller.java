@@ -1,35 +1,49 @@
 package com.shoreviewanalytics.kafka.controller;
 
-import com.datastax.oss.driver.api.core.CqlSession;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shoreviewanalytics.cassandra.MediaWriter;
-import com.shoreviewanalytics.config.AppConfig;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.shoreviewanalytics.cassandra.MediaDeduplicator;
+import com.shoreviewanalytics.cassandra.MediaPager;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.kafka.consumer.AcknowledgedOffsets;
+import com.shoreviewanalytics.kafka.consumer.MediaRecordHandler;
+import com.shoreviewanalytics.kafka.consumer.WriteBackpressure;
 import com.shoreviewanalytics.kafka.domain.Media;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import com.shoreviewanalytics.kafka.ingest.IngestSummary;
+import com.shoreviewanalytics.kafka.ingest.MediaCsvIngester;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.retry.DeadLetterReplayer;
+import com.shoreviewanalytics.kafka.retry.ReplaySummary;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.producer.ProducerRecord;
 
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.StreamSupport;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Description: This class allows the user to use a curl command to initiate a producer that writes messages to Kafka.
@@ -48,92 +62,230 @@ public class Controller {
     private static final Logger logger =
             LoggerFactory.getLogger(Controller.class);
 
-    private final KafkaTemplate<String, Object> template;
-    private final String topicName;
-    private CountDownLatch latch;
-    private final ObjectMapper objectMapper;
-    private MediaWriter mediaWriter;
-    private CqlSession session;
+    private final MediaRecordHandler recordHandler;
+    private final MediaCsvIngester ingester;
+    private final MediaDeduplicator deduplicator;
+    private final MediaReader mediaReader;
+    private final MediaPager mediaPager;
+    private final ObjectWriter mediaJson;
+    private final MediaMetrics metrics;
+    private final WriteBackpressure backpressure;
+    private final DeadLetterReplayer replayer;
+    private final AcknowledgedOffsets offsets;
 
-    @Autowired
-    AppConfig config;
+    private static final int UPLOAD_BUFFER_SIZE = 64 * 1024;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+    private static final String MEDIA_LISTENER = "media-01";
 
+    /*
+    the sink behind the record handler and its session are application scoped, every poll reuses the same warm
+    connection pool
+     */
     public Controller(
-            final KafkaTemplate<String, Object> template,
-            @Value("${tpd.topic-name}") final String topicName ) throws Exception {
-            this.template = template;
-            this.topicName = topicName;
-            objectMapper = new ObjectMapper();
+            final MediaRecordHandler recordHandler,
+            final MediaCsvIngester ingester,
+            final MediaDeduplicator deduplicator,
+            final MediaReader mediaReader,
+            final MediaPager mediaPager,
+            final ObjectMapper objectMapper,
+            final MediaMetrics metrics,
+            final WriteBackpressure backpressure,
+            final DeadLetterReplayer replayer,
+            final AcknowledgedOffsets offsets) throws Exception {
+            this.recordHandler = recordHandler;
+            this.ingester = ingester;
+            this.deduplicator = deduplicator;
+            this.mediaReader = mediaReader;
+            this.mediaPager = mediaPager;
+            this.mediaJson = objectMapper.writerFor(Media.class);
+            this.metrics = metrics;
+            this.backpressure = backpressure;
+            this.replayer = replayer;
+            this.offsets = offsets;
     }
     /*
     http://zetcode.com/spring/getmapping/
     https://www.baeldung.com/spring-new-requestmapping-shortcuts
      */
     @GetMapping("/media")
-    public String media() throws Exception {
-
-        latch = new CountDownLatch(1);
-        // setup media writer Cassandra session, prior to sending messages
-        mediaWriter = new MediaWriter();
-
-        session = mediaWriter.cqlSession(
-                config.getNode(),
-                config.getPort(),
-                config.getDatacenter(),
-                config.getUsername(),
-                config.getPassword());
+    public IngestSummary media() throws Exception {
 
         try (
                 InputStream is = Controller.class.getResourceAsStream("/media_by_title_year.csv");
-                BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-
-                CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withDelimiter('$'))
+                BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))
         ) {
-            for (CSVRecord csvRecord : csvParser) {
-                // Accessing Values by Column Index
-                String line = csvRecord.get(0) + "," + csvRecord.get(1) + "," + csvRecord.get(2) + "," + csvRecord.get(3) + "," + csvRecord.get(4) + "," + csvRecord.get(5);
-                Media media = new Media();
-                media.setTitle(csvRecord.get(0));
-                media.setAdded_year(csvRecord.get(1));
-                media.setAdded_date(csvRecord.get(2));
-                media.setDescription(csvRecord.get(3));
-                media.setUserid(csvRecord.get(4));
-                media.setVideoid(csvRecord.get(5));
-
-                this.template.send(new ProducerRecord<>(topicName, media));
+            IngestSummary summary = ingester.ingest(reader);
+            logger.info("Done producing and inserting media messages: {}", summary);
+            return summary;
+        }
+    }
+
+
+    /*
+    Streams a $ delimited media csv from the request body to the media topic, e.g.
+    curl -X POST -H "Content-Type: text/csv" --data-binary @media_by_title_year.csv localhost:8080/media/upload
+    The body is read from the servlet input stream as it arrives and is never held in memory as a whole. The response
+    is sent once the last row has reached Cassandra and contains the counts and the throughput of the run.
+     */
+    @PostMapping("/media/upload")
+    public IngestSummary upload(HttpServletRequest request) throws Exception {
 
+        Reader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), UPLOAD_BUFFER_SIZE);
+        IngestSummary summary = ingester.ingest(reader);
+        logger.info("Produced uploaded media: {}", summary);
+        return summary;
+    }
+
+    /*
+    Produces a large $ delimited media csv that already sits on the server, e.g. a catalog export copied into
+    tpd.ingest.directory. The file is memory-mapped and parsed in parallel chunks, see ParallelMediaCsvReader.
+    curl -X POST "localhost:8080/media/file?name=catalog-export.csv"
+    A 400 when the name leads outside of the ingest directory, a 404 when there is no such file.
+     */
+    @PostMapping("/media/file")
+    public ResponseEntity<IngestSummary> file(@RequestParam("name") String name) throws Exception {
+
+        IngestSummary summary;
+        try {
+            summary = ingester.ingestFile(name);
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Refused media file {}: {}", name, ex.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (NoSuchFileException ex) {
+            logger.warn("Media file {} does not exist", ex.getFile());
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Produced media file {}: {}", name, summary);
+        return ResponseEntity.ok(summary);
+    }
+
+    /*
+    The rows of one (title, added_year) partition, answered from the MediaReader's cache when possible, e.g.
+    curl "localhost:8080/media/DataStax%20Cassandra%20Tutorials%20-%20Apache%20Cassandra%20Overview/2011"
+    A 404 when the partition has no rows. Titles containing a slash can not be looked up this way.
+     */
+    @GetMapping("/media/{title}/{year}")
+    public CompletableFuture<ResponseEntity<List<Media>>> byTitleAndYear(
+            @PathVariable("title") String title, @PathVariable("year") int year) {
+
+        return mediaReader.find(title, year).thenApply(rows -> rows.isEmpty()
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(rows));
+    }
+
+    /*
+    Streams a listing of the videos table as newline delimited json, one Media per line, e.g.
+    curl "localhost:8080/media/stream?year=2011&pageSize=500&maxPages=10"
+    Rows go out page by page while the next page is fetched, so the listing is never held in memory. Without year all
+    rows are listed. When maxPages cuts the listing short its last line is {"pageToken":"..."}; passing the token back as
+    pageToken continues the listing with the next page.
+     */
+    @GetMapping(value = "/media/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "pageSize", defaultValue = "500") int pageSize,
+            @RequestParam(value = "maxPages", defaultValue = "0") int maxPages,
+            @RequestParam(value = "pageToken", required = false) String pageToken) {
+
+        // rejected before the response is committed, afterwards only the connection can be dropped
+        if (pageSize < 1 || pageSize > MediaPager.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (pageToken != null) {
+            try {
+                MediaPager.decodePageToken(pageToken);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        latch.await(60, TimeUnit.SECONDS);
-        logger.info("Done producing and inserting media messages");
-        return "Thanks for sending us your favorite media!";
+
+        StreamingResponseBody body = out -> {
+            String next = mediaPager.stream(year, pageToken, pageSize, maxPages, new MediaPager.Rows() {
+                @Override
+                public void row(Media media) throws IOException {
+                    writeLine(out, mediaJson.writeValueAsBytes(media));
+                }
+
+                @Override
+                public void endOfPage() throws IOException {
+                    out.flush();
+                }
+            });
+            if (next != null) {
+                writeLine(out, mediaJson.forType(Object.class)
+                        .writeValueAsBytes(Collections.singletonMap("pageToken", next)));
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
+    private static void writeLine(OutputStream out, byte[] json) throws IOException {
+        out.write(json);
+        out.write('\n');
+    }
 
-    @KafkaListener(id = "media-01", topics = "media", clientIdPrefix = "media-json",containerFactory = "kafkaListenerContainerFactory")
-    public void listenAsObject(ConsumerRecord<String, Object> cr,@Payload Media payload) throws Exception {
+    /*
+    hits, misses and evictions of the read cache
+    curl localhost:8080/media/cache
+     */
+    @GetMapping("/media/cache")
+    public MediaReader.Stats cache() {
+        return mediaReader.stats();
+    }
 
-        // Serialize each message as json to use previously written insert logic
+    /*
+    hit rate and false positive estimate of the dedup stage, see MediaDeduplicator
+    curl localhost:8080/media/dedup
+     */
+    @GetMapping("/media/dedup")
+    public MediaDeduplicator.Stats dedup() {
+        return deduplicator.stats();
+    }
 
-        JsonNode serializeForInsert = objectMapper.valueToTree(cr.value());
+    /*
+    Re-produces the records that reached the dead letter topic since the last replay to the media topic, e.g. once the
+    cause of their failure has been fixed, with the bytes and headers they were dead-lettered with.
+    curl -X POST localhost:8080/media/dlt/replay
+     */
+    @PostMapping("/media/dlt/replay")
+    public ReplaySummary replayDeadLetters() throws Exception {
 
-        // Insert the json formatted message
+        ReplaySummary summary = replayer.replay();
+        logger.info("Replayed dead letters: {}", summary);
+        return summary;
+    }
 
-        mediaWriter.WriteToCassandra(serializeForInsert, session);
+    /*
+    Receives everything returned by one poll and hands it to the MediaRecordHandler, which passes it to the MediaSink,
+    the asynchronous MediaWriter unless a test replaced it, without waiting for Cassandra, so the next poll overlaps with
+    the inserts of the previous ones. Records that fail are forwarded to the retry topics instead of being retried in
+    place, see MediaRecoverer. Offsets are committed on this thread, but only up to the records that have been handled,
+    see AcknowledgedOffsets. When inserts queue up behind the writer's in-flight limit the container is paused until
+    they are sent, see WriteBackpressure.
+     */
+    @KafkaListener(id = MEDIA_LISTENER, topics = "media", clientIdPrefix = "media-json",containerFactory = "batchKafkaListenerContainerFactory")
+    public void listenAsObject(List<ConsumerRecord<String, Media>> records, Consumer<?, ?> consumer) throws Exception {
 
-        latch.countDown();
+        long start = System.nanoTime();
+        offsets.track(records, recordHandler.handle(records));
+        offsets.commitIfDue(consumer);
+        metrics.consumed(records.size(), start);
+        backpressure.afterHandOff(MEDIA_LISTENER);
     }
 
     @KafkaListener(id = "media-01-test", topics = "test_media", clientIdPrefix = "media-json-test",containerFactory = "kafkaListenerContainerFactory")
     public void listenAsObjectTest(ConsumerRecord<String, Object> cr,@Payload Media payload) throws Exception {
     }
 
-    private static String typeIdHeader(Headers headers) {
-        return StreamSupport.stream(headers.spliterator(), false)
-                .filter(header -> header.key().equals("__TypeId__"))
-                .findFirst().map(header -> new String(header.value())).orElse("N/A");
+    /*
+    The type id JsonSerializer wrote for a record, or N/A. Looks the header up with lastHeader, the header JsonDeserializer
+    uses as well, instead of streaming over all headers; see TypeIdHeaderBenchmark.
+     */
+    public static String typeIdHeader(Headers headers) {
+        Header header = headers.lastHeader(TYPE_ID_HEADER);
+        return header == null ? "N/A" : new String(header.value(), StandardCharsets.UTF_8);
     }
 
 
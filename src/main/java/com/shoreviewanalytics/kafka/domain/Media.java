@@ -1,27 +1,59 @@
 package com.shoreviewanalytics.kafka.domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.UUID;
 
-import java.util.StringTokenizer;
 /*
-immutable class with @JsonProperty annotations in the constructor parameters so Jackson can deserialize it properly
+A media row with the types of its Cassandra columns: added_year is an int, added_date a timestamp and userid and videoid
+uuids. The values are parsed once, when the row is read with parse(...), and then carried as they are through the
+serializers and the writer. A row that does not parse is rejected at that point instead of failing as a CQL error on the
+consumer.
  */
 public class Media {
+
+    /*
+    Accepts the timestamp literals Cassandra itself accepts for the csv data, e.g. 2011-10-05, 2015-03-01 08:00:00+0000 or
+    2015-03-01T08:00:00.000Z. A literal without an offset is taken as UTC.
+     */
+    private static final DateTimeFormatter CQL_TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd")
+            .optionalStart()
+            .appendPattern("[' ']['T']HH:mm")
+            .optionalStart().appendPattern(":ss").optionalEnd()
+            .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+            .optionalEnd()
+            .optionalStart().appendOffset("+HH:MM", "Z").optionalEnd()
+            .optionalStart().appendOffset("+HHMM", "Z").optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.OFFSET_SECONDS, 0)
+            .toFormatter();
+
     private String title;
-    private String added_year;
-    private String added_date;
+    private int added_year;
+    private Instant added_date;
     private String description;
-    private String userid;
-    private String videoid;
+    private UUID userid;
+    private UUID videoid;
 
     public Media(){
     }
-    public Media(@JsonProperty("title") String title,
-                 @JsonProperty("added_year") String added_year,
-                 @JsonProperty("added_date") String added_date,
-                 @JsonProperty("description") String description,
-                 @JsonProperty("userid") String userid,
-                 @JsonProperty("videoid") String videoid) {
+    public Media(String title,
+                 int added_year,
+                 Instant added_date,
+                 String description,
+                 UUID userid,
+                 UUID videoid) {
         this.title = title;
         this.added_year = added_year;
         this.added_date = added_date;
@@ -30,6 +62,68 @@ public class Media {
         this.videoid = videoid;
     }
 
+    /*
+    Parses the text form of a row, as found in the csv files. Throws an IllegalArgumentException naming the column when a
+    value does not parse.
+     */
+    public static Media parse(String title,
+                              String added_year,
+                              String added_date,
+                              String description,
+                              String userid,
+                              String videoid) {
+        return new Media(
+                title,
+                parseYear(added_year),
+                parseTimestamp(added_date),
+                description,
+                parseUuid("userid", userid),
+                parseUuid("videoid", videoid));
+    }
+
+    /*
+    Jackson reads the json written by Spring's JsonSerializer through here. added_date is written as an ISO-8601 string,
+    json records from before the typed domain hold the csv literal, both are accepted. added_year is part of the
+    partition key, a record without it is rejected rather than written to year 0.
+     */
+    @JsonCreator
+    static Media fromJson(@JsonProperty("title") String title,
+                          @JsonProperty("added_year") Integer added_year,
+                          @JsonProperty("added_date") String added_date,
+                          @JsonProperty("description") String description,
+                          @JsonProperty("userid") UUID userid,
+                          @JsonProperty("videoid") UUID videoid) {
+        if (added_year == null) {
+            throw new IllegalArgumentException("added_year is missing");
+        }
+        return new Media(title, added_year, added_date == null ? null : parseTimestamp(added_date),
+                description, userid, videoid);
+    }
+
+    public static Instant parseTimestamp(String value) {
+        try {
+            return OffsetDateTime.parse(value.trim(), CQL_TIMESTAMP).toInstant();
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("added_date is not a timestamp: " + value, ex);
+        }
+    }
+
+    private static int parseYear(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("added_year is not a year: " + value, ex);
+        }
+    }
+
+    private static UUID parseUuid(String column, String value) {
+        try {
+            return UUID.fromString(value.trim());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(column + " is not a uuid: " + value, ex);
+        }
+    }
+
     public String getTitle() {
         return title;
     }
@@ -38,19 +132,20 @@ public class Media {
         this.title = title;
     }
 
-    public String getAdded_year() {
+    public int getAdded_year() {
         return added_year;
     }
 
-    public void setAdded_year(String added_year) {
+    public void setAdded_year(int added_year) {
         this.added_year = added_year;
     }
 
-    public String getAdded_date() {
+    @JsonSerialize(using = ToStringSerializer.class)
+    public Instant getAdded_date() {
         return added_date;
     }
 
-    public void setAdded_date(String added_date) {
+    public void setAdded_date(Instant added_date) {
         this.added_date = added_date;
     }
 
@@ -62,19 +157,19 @@ public class Media {
         this.description = description;
     }
 
-    public String getUserid() {
+    public UUID getUserid() {
         return userid;
     }
 
-    public void setUserid(String userid) {
+    public void setUserid(UUID userid) {
         this.userid = userid;
     }
 
-    public String getVideoid() {
+    public UUID getVideoid() {
         return videoid;
     }
 
-    public void setVideoid(String videoid) {
+    public void setVideoid(UUID videoid) {
         this.videoid = videoid;
     }
 
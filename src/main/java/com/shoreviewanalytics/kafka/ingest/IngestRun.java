@@ -0,0 +1,152 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: Accounts for one ingest run from the csv row to the Cassandra row. Every produced record carries the id
+ * of its run in the ingest-run header and its number within the run in the ingest-record header, so the listener can
+ * report its Cassandra write back to the run. Delivery is at least once, a record can reach the listener more than once;
+ * only the first outcome of every record number counts.
+ * A run is finished when all rows have been parsed, the broker has answered every send and every acknowledged record
+ * has been written to Cassandra or failed to be written.
+ */
+public class IngestRun {
+
+    public static final String HEADER = "ingest-run";
+    public static final String RECORD_HEADER = "ingest-record";
+
+    private final String id = UUID.randomUUID().toString();
+    private final byte[] headerValue = id.getBytes(StandardCharsets.UTF_8);
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong writeFailed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong nextRecord = new AtomicLong();
+    private final Set<Long> settled = ConcurrentHashMap.newKeySet();
+    private volatile long rejected;
+    private volatile boolean producing = true;
+
+    private final CompletableFuture<IngestSummary> finished = new CompletableFuture<>();
+
+    public String getId() {
+        return id;
+    }
+
+    public void addHeader(Headers headers) {
+        headers.add(HEADER, headerValue);
+        headers.add(RECORD_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(nextRecord.getAndIncrement()).array());
+    }
+
+    public static String idOf(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /*
+    the number of the record within its run, -1 when it has none
+     */
+    public static long recordOf(Headers headers) {
+        Header header = headers.lastHeader(RECORD_HEADER);
+        return header == null || header.value().length != Long.BYTES ? -1 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    public void produced() {
+        produced.incrementAndGet();
+    }
+
+    public void acknowledged() {
+        acknowledged.incrementAndGet();
+        checkFinished();
+    }
+
+    public void failed() {
+        failed.incrementAndGet();
+        checkFinished();
+    }
+
+    /*
+    the Cassandra side takes the headers of the consumed record, a record seen before is not counted again
+     */
+    public void persisted(Headers headers) {
+        settle(headers, persisted);
+    }
+
+    public void writeFailed(Headers headers) {
+        settle(headers, writeFailed);
+    }
+
+    /*
+    consumed but skipped by the MediaDeduplicator, the row is already in Cassandra
+     */
+    public void duplicate(Headers headers) {
+        settle(headers, duplicates);
+    }
+
+    private void settle(Headers headers, AtomicLong outcome) {
+        if (settled.add(recordOf(headers))) {
+            outcome.incrementAndGet();
+            checkFinished();
+        }
+    }
+
+    /*
+    called once the last row has been handed to the producer
+     */
+    public void producingComplete(long rejected) {
+        this.rejected = rejected;
+        this.producing = false;
+        checkFinished();
+    }
+
+    public CompletableFuture<IngestSummary> finished() {
+        return finished;
+    }
+
+    public boolean isFinished() {
+        return finished.isDone();
+    }
+
+    /*
+    Counters only grow and the condition is checked after every increment, so the last event of the run sees the final
+    counts. Every record counts once on the Cassandra side, so it is complete when its count is that of the broker side.
+     */
+    private void checkFinished() {
+        if (producing || finished.isDone()) {
+            return;
+        }
+        long sent = acknowledged.get() + failed.get();
+        if (sent == produced.get() && persisted.get() + writeFailed.get() + duplicates.get() == acknowledged.get()) {
+            finished.complete(summary(true));
+        }
+    }
+
+    public IngestSummary summary() {
+        return summary(finished.isDone());
+    }
+
+    private IngestSummary summary(boolean complete) {
+        return new IngestSummary(
+                produced.get(),
+                rejected,
+                acknowledged.get(),
+                failed.get(),
+                persisted.get(),
+                writeFailed.get(),
+                duplicates.get(),
+                (System.nanoTime() - startNanos) / 1_000_000,
+                complete);
+    }
+}
@@ -0,0 +1,32 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+The ingest runs in progress, looked up by the listener through the ingest-run header of a consumed record.
+Records produced by anything else carry no header and are not accounted for.
+ */
+@Component
+public class IngestRuns {
+
+    private final Map<String, IngestRun> running = new ConcurrentHashMap<>();
+
+    public IngestRun start() {
+        IngestRun run = new IngestRun();
+        running.put(run.getId(), run);
+        return run;
+    }
+
+    public IngestRun find(Headers headers) {
+        String id = IngestRun.idOf(headers);
+        return id == null ? null : running.get(id);
+    }
+
+    public void remove(IngestRun run) {
+        running.remove(run.getId());
+    }
+}
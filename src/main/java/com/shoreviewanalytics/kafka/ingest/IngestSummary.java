@@ -0,0 +1,109 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+/*
+Returned as json when an ingest run has finished, or when waiting for it timed out, in which case complete is false.
+ */
+public class IngestSummary {
+
+    private final long produced;
+    private final long rejected;
+    private final long acknowledged;
+    private final long failed;
+    private final long persisted;
+    private final long writeFailed;
+    private final long duplicates;
+    private final long elapsedMs;
+    private final boolean complete;
+
+    public IngestSummary(long produced, long rejected, long acknowledged, long failed,
+                         long persisted, long writeFailed, long duplicates, long elapsedMs, boolean complete) {
+        this.produced = produced;
+        this.rejected = rejected;
+        this.acknowledged = acknowledged;
+        this.failed = failed;
+        this.persisted = persisted;
+        this.writeFailed = writeFailed;
+        this.duplicates = duplicates;
+        this.elapsedMs = elapsedMs;
+        this.complete = complete;
+    }
+
+    /*
+    rows parsed and handed to the producer
+     */
+    public long getProduced() {
+        return produced;
+    }
+
+    /*
+    rows that could not be parsed
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /*
+    records the broker confirmed
+     */
+    public long getAcknowledged() {
+        return acknowledged;
+    }
+
+    /*
+    records the producer could not deliver
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /*
+    records written to Cassandra
+     */
+    public long getPersisted() {
+        return persisted;
+    }
+
+    /*
+    records consumed but not written to Cassandra
+     */
+    public long getWriteFailed() {
+        return writeFailed;
+    }
+
+    /*
+    records consumed but not written because they were already in Cassandra
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /*
+    end to end, from the start of parsing until the last record was persisted
+     */
+    public double getRowsPerSecond() {
+        return elapsedMs == 0 ? persisted : persisted * 1000.0 / elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestSummary [" +
+                "produced=" + produced + ", " +
+                "rejected=" + rejected + ", " +
+                "acknowledged=" + acknowledged + ", " +
+                "failed=" + failed + ", " +
+                "persisted=" + persisted + ", " +
+                "writeFailed=" + writeFailed + ", " +
+                "duplicates=" + duplicates + ", " +
+                "elapsedMs=" + elapsedMs + ", " +
+                "rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) + ", " +
+                "complete=" + complete + "]";
+    }
+}
@@ -0,0 +1,110 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/*
+The $ delimited layout of the media csv files: title$added_year$added_date$description$userid$videoid
+ */
+public final class MediaCsv {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MediaCsv.class);
+
+    public static final CSVFormat FORMAT = CSVFormat.DEFAULT.withDelimiter('$');
+
+    public static final int COLUMNS = 6;
+
+    public static final LongConsumer UNTIMED = nanos -> { };
+
+    private MediaCsv() {
+    }
+
+    public static Media toMedia(CSVRecord csvRecord) {
+        if (csvRecord.size() != COLUMNS) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns but line "
+                    + csvRecord.getRecordNumber() + " has " + csvRecord.size());
+        }
+        // Accessing Values by Column Index, typed here once so an invalid value rejects the row
+        try {
+            return Media.parse(
+                    csvRecord.get(0),
+                    csvRecord.get(1),
+                    csvRecord.get(2),
+                    csvRecord.get(3),
+                    csvRecord.get(4),
+                    csvRecord.get(5));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("line " + csvRecord.getRecordNumber() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /*
+    Parses the reader row by row and hands every valid row to the sink as soon as it is parsed. Rows without the expected
+    number of columns or with a value that does not fit its column type are counted as rejected and skipped, they do not
+    stop the parse.
+     */
+    public static Counts parse(Reader reader, Consumer<Media> sink) throws IOException {
+        return parse(reader, sink, UNTIMED);
+    }
+
+    /*
+    As above, and calls parseNanos with the time it took to read and type every valid row, without the time spent in the
+    sink. Rejected rows are not timed.
+     */
+    public static Counts parse(Reader reader, Consumer<Media> sink, LongConsumer parseNanos) throws IOException {
+
+        Counts counts = new Counts();
+        try (CSVParser csvParser = new CSVParser(reader, FORMAT)) {
+            Iterator<CSVRecord> csvRecords = csvParser.iterator();
+            long start = System.nanoTime();
+            while (csvRecords.hasNext()) {
+                CSVRecord csvRecord = csvRecords.next();
+                Media media;
+                try {
+                    media = toMedia(csvRecord);
+                } catch (IllegalArgumentException ex) {
+                    counts.rejected++;
+                    logger.warn("Rejected media row: {}", ex.getMessage());
+                    start = System.nanoTime();
+                    continue;
+                }
+                parseNanos.accept(System.nanoTime() - start);
+                sink.accept(media);
+                counts.rows++;
+                start = System.nanoTime();
+            }
+        }
+        return counts;
+    }
+
+    public static final class Counts {
+
+        private long rows;
+        private long rejected;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        Counts add(Counts other) {
+            rows += other.rows;
+            rejected += other.rejected;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.producer.MediaKey;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Description: Parses media csv rows and produces each row to the media topic as soon as it is parsed.
+ * Only the rows being parsed are held in memory, so the size of the input is not limited by the heap. When the producer's
+ * buffer.memory is exhausted KafkaTemplate.send blocks, which throttles reading to the speed of the broker.
+ * Every call is one IngestRun: it returns when the last record of the run has been written to Cassandra, or when
+ * tpd.ingest.completion-timeout-ms has passed.
+ */
+@Component
+public class MediaCsvIngester {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MediaCsvIngester.class);
+
+    private final KafkaTemplate<String, Object> template;
+    private final String topicName;
+    private final Path directory;
+    private final ParallelMediaCsvReader parallelReader;
+    private final IngestRuns runs;
+    private final MediaKey mediaKey;
+    private final MediaMetrics metrics;
+    private final long completionTimeoutMs;
+
+    public MediaCsvIngester(
+            final KafkaTemplate<String, Object> template,
+            @Value("${tpd.topic-name}") final String topicName,
+            @Value("${tpd.ingest.directory:.}") final String directory,
+            @Value("${tpd.ingest.parallelism:0}") final int parallelism,
+            @Value("${tpd.ingest.chunk-size-bytes:8388608}") final long chunkSize,
+            @Value("${tpd.ingest.completion-timeout-ms:300000}") final long completionTimeoutMs,
+            final IngestRuns runs,
+            final MediaKey mediaKey,
+            final MediaMetrics metrics) {
+        this.template = template;
+        this.topicName = topicName;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.parallelReader = new ParallelMediaCsvReader(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), chunkSize);
+        this.completionTimeoutMs = completionTimeoutMs;
+        this.runs = runs;
+        this.mediaKey = mediaKey;
+        this.metrics = metrics;
+    }
+
+    /*
+    sequential, for streams that can only be read once such as an upload
+     */
+    public IngestSummary ingest(Reader reader) throws IOException, InterruptedException {
+
+        IngestRun run = runs.start();
+        try {
+            MediaCsv.Counts counts = MediaCsv.parse(reader, media -> send(media, run), metrics::parsed);
+            run.producingComplete(counts.getRejected());
+            return await(run);
+        } finally {
+            runs.remove(run);
+        }
+    }
+
+    /*
+    parallel, for files on the local disk; the file has to be inside tpd.ingest.directory
+     */
+    public IngestSummary ingestFile(String fileName) throws IOException, InterruptedException {
+
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException(fileName + " is outside of the ingest directory " + directory);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+
+        IngestRun run = runs.start();
+        try {
+            MediaCsv.Counts counts = parallelReader.read(file, media -> send(media, run), metrics::parsed);
+            run.producingComplete(counts.getRejected());
+            return await(run);
+        } finally {
+            runs.remove(run);
+        }
+    }
+
+    private void send(Media media, IngestRun run) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topicName, mediaKey.of(media), media);
+        run.addHeader(record.headers());
+        long start = System.nanoTime();
+        this.template.send(record).addCallback(
+                result -> {
+                    metrics.produced(start, true);
+                    run.acknowledged();
+                },
+                ex -> {
+                    metrics.produced(start, false);
+                    run.failed();
+                    logger.error("Failed to produce media {}", media, ex);
+                });
+        run.produced();
+    }
+
+    private IngestSummary await(IngestRun run) throws InterruptedException {
+        try {
+            return run.finished().get(completionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            IngestSummary summary = run.summary();
+            logger.warn("Ingest run {} did not finish within {} ms: {}", run.getId(), completionTimeoutMs, summary);
+            return summary;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        parallelReader.close();
+    }
+}
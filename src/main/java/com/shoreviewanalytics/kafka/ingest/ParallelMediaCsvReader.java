@@ -0,0 +1,170 @@
+package com.shoreviewanalytics.kafka.ingest;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Description: Reads a large media csv file in parallel. The file is split at line breaks into chunks of about
+ * chunkSize bytes, each chunk is memory-mapped and parsed on a fork-join pool and every parsed row is handed to the
+ * sink from the thread that parsed it, so the sink has to be thread-safe (KafkaTemplate.send is).
+ * Splitting at line breaks assumes that no field contains a line break, which holds for the media exports. Rows of
+ * different chunks reach the sink in no particular order.
+ */
+public class ParallelMediaCsvReader implements AutoCloseable {
+
+    public static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public ParallelMediaCsvReader(int parallelism, long chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + Integer.MAX_VALUE + " but was " + chunkSize);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    public MediaCsv.Counts read(Path file, Consumer<Media> sink) throws IOException {
+        return read(file, sink, MediaCsv.UNTIMED);
+    }
+
+    /*
+    parseNanos is called with the parse time of every valid row, from the threads of the pool, see MediaCsv.parse
+     */
+    public MediaCsv.Counts read(Path file, Consumer<Media> sink, LongConsumer parseNanos) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return pool.invoke(new ChunkTask(channel, 0, channel.size(), sink, parseNanos));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /*
+    Halves its byte range at the first line break after the middle until the range is no larger than chunkSize, then
+    parses the range. Every range therefore starts at the beginning of a row and ends after the end of a row.
+     */
+    private class ChunkTask extends RecursiveTask<MediaCsv.Counts> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Consumer<Media> sink;
+        private final LongConsumer parseNanos;
+
+        ChunkTask(FileChannel channel, long start, long end, Consumer<Media> sink, LongConsumer parseNanos) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.sink = sink;
+            this.parseNanos = parseNanos;
+        }
+
+        @Override
+        protected MediaCsv.Counts compute() {
+            try {
+                if (end - start > chunkSize) {
+                    long middle = nextRowStart(channel, start + (end - start) / 2, end);
+                    if (middle < end) {
+                        ChunkTask left = new ChunkTask(channel, start, middle, sink, parseNanos);
+                        left.fork();
+                        MediaCsv.Counts right = new ChunkTask(channel, middle, end, sink, parseNanos).compute();
+                        return right.add(left.join());
+                    }
+                }
+                return parse();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private MediaCsv.Counts parse() throws IOException {
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("no line break between byte " + start + " and byte " + end);
+            }
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            return MediaCsv.parse(new InputStreamReader(new ByteBufferInputStream(chunk), StandardCharsets.UTF_8), sink, parseNanos);
+        }
+    }
+
+    /*
+    position of the first byte after the next line break at or after from, or end if there is none
+     */
+    private static long nextRowStart(FileChannel channel, long from, long end) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while (position < end) {
+            scan.clear();
+            scan.limit((int) Math.min(scan.capacity(), end - position));
+            int read = channel.read(scan, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
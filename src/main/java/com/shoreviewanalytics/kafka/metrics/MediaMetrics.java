@@ -0,0 +1,185 @@
+package com.shoreviewanalytics.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: The timers and counters of every stage a media record passes, from the csv row to the Cassandra row.
+ * They are published on /actuator/prometheus; the percentiles and histogram buckets of the media.* timers are set
+ * under management.metrics.distribution in application.yml.
+ * Meters are looked up once here, so recording on the hot path is a clock read and an update of the timer.
+ */
+@Component
+public class MediaMetrics {
+
+    public static final String CSV_PARSE = "media.csv.parse";
+    public static final String PRODUCE_ACK = "media.produce.ack";
+    public static final String DESERIALIZE = "media.deserialize";
+    public static final String CONSUME_POLL = "media.consume.poll";
+    public static final String CONSUME_RECORDS = "media.consume.records";
+    public static final String DUPLICATES = "media.dedup.skipped";
+    public static final String DEDUP_HIT_RATE = "media.dedup.hit.rate";
+    public static final String DEDUP_RECORDS = "media.dedup.records";
+    public static final String DEDUP_FALSE_POSITIVE_RATE = "media.dedup.false.positive.rate";
+    public static final String PAUSES = "media.consume.pauses";
+    public static final String PAUSED = "media.consume.paused";
+    public static final String COMMITS = "media.consume.commits";
+    public static final String CASSANDRA_WRITE = "media.cassandra.write";
+    public static final String END_TO_END = "media.end.to.end";
+    public static final String RETRIED = "media.retry.forwarded";
+    public static final String DEAD_LETTERED = "media.dead.lettered";
+    public static final String FORWARD_FAILED = "media.retry.forward.failed";
+    public static final String UNHANDLED = "media.consume.unhandled";
+
+    private final Timer csvParse;
+    private final Timer produceAcknowledged;
+    private final Timer produceFailed;
+    private final Timer deserialize;
+    private final Timer consumePoll;
+    private final Counter consumeRecords;
+    private final Counter duplicates;
+    private final Counter pauses;
+    private final Timer paused;
+    private final Counter commits;
+    private final Timer cassandraWritten;
+    private final Timer cassandraFailed;
+    private final Timer endToEnd;
+    private final Counter retried;
+    private final Counter deadLetteredWrites;
+    private final Counter deadLetteredUnreadable;
+    private final Counter forwardFailed;
+    private final Counter unhandled;
+
+    public MediaMetrics(MeterRegistry registry) {
+        csvParse = Timer.builder(CSV_PARSE)
+                .description("parsing one csv row into a Media")
+                .register(registry);
+        produceAcknowledged = outcome(PRODUCE_ACK, "KafkaTemplate.send until the broker answered", "success", registry);
+        produceFailed = outcome(PRODUCE_ACK, "KafkaTemplate.send until the broker answered", "failure", registry);
+        deserialize = Timer.builder(DESERIALIZE)
+                .description("deserializing one consumed value")
+                .register(registry);
+        consumePoll = Timer.builder(CONSUME_POLL)
+                .description("the media listener handling the records of one poll")
+                .register(registry);
+        consumeRecords = Counter.builder(CONSUME_RECORDS)
+                .description("records received by the media listener")
+                .register(registry);
+        duplicates = Counter.builder(DUPLICATES)
+                .description("records not written because the MediaDeduplicator has seen them")
+                .register(registry);
+        pauses = Counter.builder(PAUSES)
+                .description("times the media listener was paused because Cassandra was behind")
+                .register(registry);
+        paused = Timer.builder(PAUSED)
+                .description("how long the media listener stayed paused")
+                .register(registry);
+        commits = Counter.builder(COMMITS)
+                .description("offset commits of the media and retry listeners, each covering the records handled since the last")
+                .register(registry);
+        cassandraWritten = outcome(CASSANDRA_WRITE, "hand-off to the MediaWriter until Cassandra answered", "success", registry);
+        cassandraFailed = outcome(CASSANDRA_WRITE, "hand-off to the MediaWriter until Cassandra answered", "failure", registry);
+        endToEnd = Timer.builder(END_TO_END)
+                .description("record timestamp until Cassandra acknowledged the row")
+                .register(registry);
+        retried = Counter.builder(RETRIED)
+                .description("records whose write failed, forwarded to a delayed retry topic")
+                .register(registry);
+        deadLetteredWrites = reason("write", registry);
+        deadLetteredUnreadable = reason("unreadable", registry);
+        forwardFailed = Counter.builder(FORWARD_FAILED)
+                .description("sends of a failed record to a retry or the dead letter topic the broker did not acknowledge")
+                .register(registry);
+        unhandled = Counter.builder(UNHANDLED)
+                .description("records neither written nor forwarded, their offset holds the commit of their partition")
+                .register(registry);
+    }
+
+    private static Counter reason(String reason, MeterRegistry registry) {
+        return Counter.builder(DEAD_LETTERED)
+                .description("records sent to the dead letter topic")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Timer outcome(String name, String description, String outcome, MeterRegistry registry) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public void parsed(long nanos) {
+        csvParse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void produced(long startNanos, boolean acknowledged) {
+        (acknowledged ? produceAcknowledged : produceFailed).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void deserialized(long nanos) {
+        deserialize.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void consumed(int records, long startNanos) {
+        consumeRecords.increment(records);
+        consumePoll.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void duplicate() {
+        duplicates.increment();
+    }
+
+    public void paused() {
+        pauses.increment();
+    }
+
+    public void resumed(long pausedAtNanos) {
+        paused.record(System.nanoTime() - pausedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void committed() {
+        commits.increment();
+    }
+
+    /*
+    the write latency of one record; includes waiting in the backlog for the in-flight limit
+     */
+    public void written(long startNanos, boolean acknowledged) {
+        (acknowledged ? cassandraWritten : cassandraFailed).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void retried() {
+        retried.increment();
+    }
+
+    public void forwardFailed() {
+        forwardFailed.increment();
+    }
+
+    public void unhandled() {
+        unhandled.increment();
+    }
+
+    /*
+    unreadable records could not be deserialized, the others failed their last retry or failed in a way a retry can not fix
+     */
+    public void deadLettered(boolean unreadable) {
+        (unreadable ? deadLetteredUnreadable : deadLetteredWrites).increment();
+    }
+
+    /*
+    From the timestamp of the consumed record, set by the producer unless the topic uses LogAppendTime, until now. Crosses
+    machines, so it is only as exact as their clocks agree; negative values from clock skew are dropped.
+     */
+    public void persisted(long recordTimestampMs) {
+        long ms = System.currentTimeMillis() - recordTimestampMs;
+        if (recordTimestampMs > 0 && ms >= 0) {
+            endToEnd.record(ms, TimeUnit.MILLISECONDS);
+        }
+    }
+}
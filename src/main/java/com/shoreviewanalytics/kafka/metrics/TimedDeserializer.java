@@ -0,0 +1,48 @@
+package com.shoreviewanalytics.kafka.metrics;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+
+import java.util.Map;
+
+/*
+Records the time the wrapped deserializer takes per value as media.deserialize. Deserialization runs on the consumer
+thread inside poll, before the listener sees the records, so it can not be timed from the listener.
+ */
+public class TimedDeserializer<T> implements ExtendedDeserializer<T> {
+
+    private final ExtendedDeserializer<T> delegate;
+    private final MediaMetrics metrics;
+
+    public TimedDeserializer(Deserializer<T> delegate, MediaMetrics metrics) {
+        this.delegate = ExtendedDeserializer.Wrapper.ensureExtended(delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        long start = System.nanoTime();
+        T value = delegate.deserialize(topic, headers, data);
+        metrics.deserialized(System.nanoTime() - start);
+        return value;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        long start = System.nanoTime();
+        T value = delegate.deserialize(topic, data);
+        metrics.deserialized(System.nanoTime() - start);
+        return value;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
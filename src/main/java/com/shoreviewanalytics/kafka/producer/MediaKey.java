@@ -0,0 +1,50 @@
+package com.shoreviewanalytics.kafka.producer;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+
+import java.util.Locale;
+
+/*
+What a media record is keyed and partitioned by, selected with tpd.producer.key. Records with the same key go to the same
+Kafka partition and therefore to the same consumer thread, in the order they were produced.
+ */
+public enum MediaKey {
+
+    /*
+    The Cassandra partition key (title, added_year) of videos_by_title_year, written as added_year:title so that a colon
+    in a title cannot make two partitions look alike. All rows of a Cassandra partition are consumed by one thread, which
+    lets the writer combine them into single-partition batches.
+     */
+    PARTITION {
+        @Override
+        public String of(Media media) {
+            return media.getAdded_year() + ":" + media.getTitle();
+        }
+    },
+
+    /*
+    one key per video, spreads the rows of a large Cassandra partition over the Kafka partitions
+     */
+    VIDEOID {
+        @Override
+        public String of(Media media) {
+            return media.getVideoid() == null ? null : media.getVideoid().toString();
+        }
+    },
+
+    /*
+    no key, records are spread round-robin as before
+     */
+    NONE {
+        @Override
+        public String of(Media media) {
+            return null;
+        }
+    };
+
+    public abstract String of(Media media);
+
+    public static MediaKey fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -0,0 +1,58 @@
+package com.shoreviewanalytics.kafka.producer;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+Partitions media records by their MediaKey, also when they were sent without a key, e.g. through Sender or when a record
+is replayed. A keyed record lands where the DefaultPartitioner would put it, murmur2 of the key bytes, so keyed and
+unkeyed records of the same Cassandra partition meet on the same Kafka partition. Values other than Media are left to
+the DefaultPartitioner.
+The key is configured with media.partitioner.key, SenderConfig sets it from tpd.producer.key.
+ */
+public class MediaPartitioner implements Partitioner {
+
+    public static final String KEY_CONFIG = "media.partitioner.key";
+
+    private final DefaultPartitioner fallback = new DefaultPartitioner();
+
+    private MediaKey mediaKey = MediaKey.PARTITION;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object key = configs.get(KEY_CONFIG);
+        if (key != null) {
+            mediaKey = MediaKey.fromName(key.toString());
+        }
+        fallback.configure(configs);
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        if (keyBytes == null && value instanceof Media) {
+            String derived = mediaKey.of((Media) value);
+            if (derived != null) {
+                keyBytes = derived.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        if (keyBytes == null) {
+            return fallback.partition(topic, key, null, value, valueBytes, cluster);
+        }
+        return partitionOf(keyBytes, cluster.partitionsForTopic(topic).size());
+    }
+
+    public static int partitionOf(byte[] keyBytes, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.shoreviewanalytics.kafka.producer;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+Named sets of producer settings, selected with tpd.producer.profile. A profile only provides defaults: anything set under
+spring.kafka.producer in application.yml still wins.
+https://kafka.apache.org/20/documentation.html#producerconfigs
+ */
+public enum ProducerProfile {
+
+    /*
+    the Kafka client defaults, kept for comparison
+     */
+    DEFAULT {
+        @Override
+        public Map<String, Object> settings() {
+            return new HashMap<>();
+        }
+    },
+
+    /*
+    every record leaves as soon as it is sent, acknowledged by the partition leader only
+     */
+    LOW_LATENCY {
+        @Override
+        public Map<String, Object> settings() {
+            Map<String, Object> props = new HashMap<>();
+            props.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+            props.put(ProducerConfig.BATCH_SIZE_CONFIG, 16 * 1024);
+            props.put(ProducerConfig.ACKS_CONFIG, "1");
+            props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+            return props;
+        }
+    },
+
+    /*
+    For bulk loads such as a catalog backfill: records wait up to linger.ms to fill large batches, which are compressed
+    with lz4 (zstd needs kafka-clients 2.1 or later) and written idempotently with acks=all, so retries can neither
+    duplicate nor reorder records within a partition.
+     */
+    BULK_THROUGHPUT {
+        @Override
+        public Map<String, Object> settings() {
+            Map<String, Object> props = new HashMap<>();
+            props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+            props.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+            props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 128L * 1024 * 1024);
+            props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+            return props;
+        }
+    };
+
+    public abstract Map<String, Object> settings();
+
+    /*
+    accepts the names as written in application.yml, e.g. bulk-throughput
+     */
+    public static ProducerProfile fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
@@ -19,12 +19,15 @@ public class Sender {
         this.template = template;
     }
 
+    /*
+    logs at debug, formatting every record at info was a noticeable share of the send path
+     */
     public void send(String topic, Object data) {
-        LOGGER.info("sending data='{}' to topic='{}'", data, topic);
+        LOGGER.debug("sending data='{}' to topic='{}'", data, topic);
         this.template.send(topic, data);
     }
     public void sendJson(String topic, JsonNode data) {
-        LOGGER.info("sending data='{}' to topic='{}'", data, topic);
+        LOGGER.debug("sending data='{}' to topic='{}'", data, topic);
         this.template.send(topic, data);
     }
 
@@ -1,8 +1,13 @@
 package com.shoreviewanalytics.kafka.producer;
 
+import com.shoreviewanalytics.kafka.serde.MediaBinarySerializer;
+import com.shoreviewanalytics.kafka.serde.PassThroughSerializer;
+import com.shoreviewanalytics.kafka.serde.ValueFormat;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,9 +29,20 @@ public class SenderConfig {
     @Autowired
     private KafkaProperties kafkaProperties;
 
+    @Value("${tpd.producer.profile:default}")
+    private String profile;
+
+    @Value("${tpd.value-format:json}")
+    private String valueFormat;
+
+    @Value("${tpd.producer.key:partition}")
+    private String key;
+
     @Bean
     public Map<String, Object> producerConfigs() {
-        Map<String, Object> props = new HashMap<>(kafkaProperties.buildProducerProperties());
+        // the profile first, so settings made explicitly under spring.kafka.producer override it
+        Map<String, Object> props = new HashMap<>(ProducerProfile.fromName(profile).settings());
+        props.putAll(kafkaProperties.buildProducerProperties());
 //        props.put("security.protocol", "SSL");
 //        props.put("ssl.endpoint.identification.algorithm", "");
 //        props.put("ssl.truststore.location", "/home/one/Downloads/kafka.service/client.truststore.jks");
@@ -35,11 +51,22 @@ public class SenderConfig {
 //        props.put("ssl.keystore.location", "/home/one/Downloads/kafka.service/client.keystore.p12");
 //        props.put("ssl.keystore.password", "");
 //        props.put("ssl.key.password", "");
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, MediaPartitioner.class);
+        props.put(MediaPartitioner.KEY_CONFIG, key);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                ValueFormat.fromName(valueFormat) == ValueFormat.BINARY ? MediaBinarySerializer.class : JsonSerializer.class);
         return props;
     }
 
+    /*
+    the key the ingester gives each media record, see MediaKey
+     */
+    @Bean
+    public MediaKey mediaKey() {
+        return MediaKey.fromName(key);
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         return new DefaultKafkaProducerFactory<>(producerConfigs());
@@ -50,5 +77,21 @@ public class SenderConfig {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /*
+    Forwards failed records to the retry and dead letter topics and replays the dead letter topic, see MediaRecoverer
+    and DeadLetterReplayer. Typed Object, Object as DeadLetterPublishingRecoverer expects; the keys are the String keys
+    of the consumed records and byte[] values are sent as they are.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public KafkaTemplate<Object, Object> recoveryTemplate() {
+        Serializer<Object> values = ValueFormat.fromName(valueFormat) == ValueFormat.BINARY
+                ? new MediaBinarySerializer()
+                : new JsonSerializer<>();
+        Serializer<?> keys = new StringSerializer();
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                producerConfigs(), (Serializer<Object>) keys, new PassThroughSerializer(values)));
+    }
+
 
 }
@@ -0,0 +1,138 @@
+package com.shoreviewanalytics.kafka.retry;
+
+import com.shoreviewanalytics.config.KafkaConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Description: Re-injects the contents of the dead letter topic into the media topic. Every replay reads the dead letter
+ * topic from where the previous one stopped up to the end offsets it finds when it starts, with a consumer group of its
+ * own, and produces each record's bytes, key and headers, without the kafka_dlt-* headers, back to the media topic.
+ * Offsets are committed once every send has been acknowledged, so a replay that fails part way is repeated from the
+ * same place; records that fail again are dead-lettered again and picked up by the next replay.
+ */
+@Component
+public class DeadLetterReplayer {
+
+    private static final String DLT_HEADER_PREFIX = "kafka_dlt-";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+
+    private final KafkaProperties kafkaProperties;
+    private final String groupId;
+    private final KafkaTemplate<Object, Object> recoveryTemplate;
+    private final RetryTopics topics;
+    private final long timeoutMs;
+
+    public DeadLetterReplayer(KafkaProperties kafkaProperties,
+                              @Value("${spring.kafka.consumer.group-id}") String groupId,
+                              KafkaTemplate<Object, Object> recoveryTemplate,
+                              RetryTopics topics,
+                              KafkaConfig config) {
+        this.kafkaProperties = kafkaProperties;
+        this.groupId = groupId + "-dlt-replay";
+        this.recoveryTemplate = recoveryTemplate;
+        this.topics = topics;
+        this.timeoutMs = config.getRetry().getReplayTimeoutMs();
+    }
+
+    /*
+    one replay at a time, two would share the consumer group and replay the same records twice
+     */
+    public synchronized ReplaySummary replay() throws InterruptedException, ExecutionException {
+
+        long start = System.nanoTime();
+        try (Consumer<String, byte[]> consumer = new KafkaConsumer<>(
+                consumerConfigs(), new StringDeserializer(), new ByteArrayDeserializer())) {
+
+            List<PartitionInfo> infos = consumer.partitionsFor(topics.getDeadLetter());
+            if (infos == null || infos.isEmpty()) {
+                return new ReplaySummary(0, elapsedMs(start), true);
+            }
+            List<TopicPartition> partitions = new ArrayList<>(infos.size());
+            for (PartitionInfo info : infos) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+            consumer.assign(partitions);
+            // records dead-lettered while the replay runs are left for the next one
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            List<ListenableFuture<?>> sends = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            boolean complete;
+            while (!(complete = caughtUp(consumer, end)) && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.offset() < end.get(new TopicPartition(record.topic(), record.partition()))) {
+                        sends.add(recoveryTemplate.send(new ProducerRecord<>(
+                                topics.getTopic(), null, record.key(), record.value(), replayHeaders(record.headers()))));
+                    }
+                }
+            }
+
+            recoveryTemplate.flush();
+            for (ListenableFuture<?> send : sends) {
+                send.get();
+            }
+            Map<TopicPartition, OffsetAndMetadata> replayed = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                replayed.put(partition, new OffsetAndMetadata(Math.min(consumer.position(partition), end.get(partition))));
+            }
+            consumer.commitSync(replayed);
+            return new ReplaySummary(sends.size(), elapsedMs(start), complete);
+        }
+    }
+
+    private Map<String, Object> consumerConfigs() {
+        Map<String, Object> props = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // a partition the group never committed is replayed from its first record
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return props;
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> entry : end.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Headers replayHeaders(Headers headers) {
+        RecordHeaders replay = new RecordHeaders();
+        for (Header header : headers) {
+            if (!header.key().startsWith(DLT_HEADER_PREFIX)) {
+                replay.add(header);
+            }
+        }
+        return replay;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
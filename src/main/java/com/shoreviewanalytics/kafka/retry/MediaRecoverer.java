@@ -0,0 +1,225 @@
+package com.shoreviewanalytics.kafka.retry;
+
+import com.datastax.oss.driver.api.core.servererrors.QueryValidationException;
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer2;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Description: Takes failed media records off the listener so it can carry on with the rest of its poll. A record whose
+ * Cassandra write failed is forwarded to the next delayed retry topic, see RetryTopics, and after the last one to the
+ * dead letter topic; a record that could not be deserialized goes to the dead letter topic right away with the bytes it
+ * was consumed as. Publishing is done by a DeadLetterPublishingRecoverer, which keeps the key and headers of the record
+ * and adds the kafka_dlt-* headers with its original topic, partition and offset and the class, message and stack trace
+ * of the failure. Both return the send, a record counts as handled once the broker has it, see AcknowledgedOffsets.
+ * Recovery runs on a thread of its own: a write fails on a thread of the Cassandra driver, and KafkaTemplate.send blocks
+ * for up to max.block.ms while it fetches the metadata of a topic or while the producer's buffer.memory is full, which
+ * would stall every request on that driver connection. Records are forwarded in the order they failed.
+ * A forward the broker did not acknowledge is sent again after tpd.retry.forward-backoff-ms, doubling up to
+ * forward-backoff-max-ms, until it is: the offset of the record is not committed before, see AcknowledgedOffsets.
+ */
+@Component
+public class MediaRecoverer {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MediaRecoverer.class);
+
+    private final RetryTopics topics;
+    private final MediaMetrics metrics;
+    private final Publisher publisher;
+    private final long backoffMs;
+    private final long backoffMaxMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "media-recovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MediaRecoverer(KafkaTemplate<Object, Object> recoveryTemplate, RetryTopics topics, KafkaConfig config,
+                          MediaMetrics metrics) {
+        this.topics = topics;
+        this.metrics = metrics;
+        this.backoffMs = config.getRetry().getForwardBackoffMs();
+        this.backoffMaxMs = config.getRetry().getForwardBackoffMaxMs();
+        // partition -1 leaves the partition to the producer, the key keeps a Cassandra partition on one Kafka partition
+        this.publisher = new Publisher(recoveryTemplate,
+                (record, ex) -> new TopicPartition(topics.next(record.topic(), isRetryable(ex)), -1));
+    }
+
+    /*
+    Forwards a record whose write failed. Completes once the broker acknowledged the forwarded record, with true when it
+    went to the dead letter topic, i.e. it will not be written unless it is replayed.
+     */
+    public CompletableFuture<Boolean> recover(ConsumerRecord<?, ?> record, Throwable failure) {
+        return CompletableFuture.supplyAsync(() -> forward(record, failure), executor).thenCompose(sent -> sent);
+    }
+
+    private CompletableFuture<Boolean> forward(ConsumerRecord<?, ?> record, Throwable failure) {
+        Exception cause = unwrap(failure);
+        String next = topics.next(record.topic(), isRetryable(cause));
+        boolean deadLetter = topics.isDeadLetter(next);
+        if (deadLetter) {
+            metrics.deadLettered(false);
+            logger.error("Media record {}-{}@{} dead-lettered to {}", record.topic(), record.partition(),
+                    record.offset(), next, cause);
+        } else {
+            metrics.retried();
+            logger.warn("Media record {}-{}@{} failed, retrying from {}: {}", record.topic(), record.partition(),
+                    record.offset(), next, cause.toString());
+        }
+        return sendUntilAcknowledged(record, cause).thenApply(sent -> deadLetter);
+    }
+
+    /*
+    Sends a record the ErrorHandlingDeserializer2 could not read to the dead letter topic with its original bytes in
+    place of the null value; the serialized exception header is dropped, the kafka_dlt-* headers describe the failure.
+     */
+    public CompletableFuture<Void> recoverUnreadable(ConsumerRecord<?, ?> record, DeserializationException failure) {
+        return CompletableFuture.supplyAsync(() -> forwardUnreadable(record, failure), executor).thenCompose(sent -> sent);
+    }
+
+    private CompletableFuture<Void> forwardUnreadable(ConsumerRecord<?, ?> record, DeserializationException failure) {
+        RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+        headers.remove(ErrorHandlingDeserializer2.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+        ConsumerRecord<Object, Object> raw = new ConsumerRecord<>(record.topic(), record.partition(), record.offset(),
+                record.timestamp(), record.timestampType(), null, record.serializedKeySize(),
+                record.serializedValueSize(), record.key(), failure.getData(), headers);
+        metrics.deadLettered(true);
+        logger.error("Unreadable media record {}-{}@{} dead-lettered to {}", record.topic(), record.partition(),
+                record.offset(), topics.getDeadLetter(), failure.getCause());
+        return sendUntilAcknowledged(raw, failure);
+    }
+
+    /*
+    fails only when the recoverer is closed before the broker acknowledged the record
+     */
+    private CompletableFuture<Void> sendUntilAcknowledged(ConsumerRecord<?, ?> record, Exception cause) {
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        send(record, cause, backoffMs, acknowledged);
+        return acknowledged;
+    }
+
+    /*
+    on the recovery thread, the outcome of a send arrives on the producer's network thread
+     */
+    private void send(ConsumerRecord<?, ?> record, Exception cause, long delayMs, CompletableFuture<Void> acknowledged) {
+        publisher.send(record, cause).whenComplete((sent, error) -> {
+            if (error == null) {
+                acknowledged.complete(null);
+                return;
+            }
+            metrics.forwardFailed();
+            logger.warn("Forwarding media record {}-{}@{} failed, sending it again in {} ms: {}", record.topic(),
+                    record.partition(), record.offset(), delayMs, error.toString());
+            try {
+                executor.schedule(() -> send(record, cause, Math.min(delayMs * 2, backoffMaxMs), acknowledged),
+                        delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                acknowledged.completeExceptionally(error);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    /*
+    The failure ErrorHandlingDeserializer2 stored in the headers of a record it returned a null value for, null when
+    the value was read.
+     */
+    public static DeserializationException unreadable(ConsumerRecord<?, ?> record) {
+        if (record.value() != null) {
+            return null;
+        }
+        Header header = record.headers().lastHeader(ErrorHandlingDeserializer2.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(header.value()))) {
+            return (DeserializationException) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            return new DeserializationException("unreadable deserialization failure header", null, false, ex);
+        }
+    }
+
+    /*
+    A retry can fix what the cluster did, a timeout, an unavailable replica or an overloaded coordinator, but not a
+    statement Cassandra rejects or a value that does not bind.
+     */
+    public static boolean isRetryable(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return !(cause instanceof QueryValidationException
+                || cause instanceof DeserializationException
+                || cause instanceof IllegalArgumentException);
+    }
+
+    private static Exception unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        return cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+    }
+
+    /*
+    DeadLetterPublishingRecoverer only logs the outcome of its send; publish runs on the calling thread, so the send it
+    starts is handed back to send through a thread local.
+     */
+    private static final class Publisher extends DeadLetterPublishingRecoverer {
+
+        private final ThreadLocal<CompletableFuture<Void>> sent = new ThreadLocal<>();
+
+        Publisher(KafkaTemplate<Object, Object> template,
+                  BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> destination) {
+            super(template, destination);
+        }
+
+        CompletableFuture<Void> send(ConsumerRecord<?, ?> record, Exception cause) {
+            try {
+                accept(record, cause);
+                CompletableFuture<Void> future = sent.get();
+                return future != null ? future : failed(new IllegalStateException("nothing was sent for " + record));
+            } catch (RuntimeException ex) {
+                return failed(ex);
+            } finally {
+                sent.remove();
+            }
+        }
+
+        @Override
+        protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> template) {
+            sent.set(template.send(outRecord).completable().thenApply(result -> null));
+        }
+
+        private static CompletableFuture<Void> failed(Throwable ex) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.shoreviewanalytics.kafka.retry;
+
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.consumer.AcknowledgedOffsets;
+import com.shoreviewanalytics.kafka.consumer.MediaRecordHandler;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.BatchConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: One listener container per retry topic, each consuming its topic with the batch factory's settings in a
+ * consumer group of its own and handing due records to the same MediaRecordHandler as the media listener.
+ * A record is due once the delay of its tier has passed since its timestamp, the time it was forwarded. The first record
+ * of a poll that is not due yet stops the poll: its partition and every other partition with records left are sought
+ * back to their first unhandled record and the container is paused until that record is due, so the retry consumers
+ * keep polling, never sleep on the poll thread and never hold up the media listener or the other tiers. Records within
+ * a tier are forwarded with the same delay, so the ones behind the first record that is not due are not due either.
+ * Offsets are committed like the media listener's, up to the records handled, see AcknowledgedOffsets; records sought
+ * back were never handed off and hold the commit at their offset.
+ */
+@Component
+public class MediaRetryListeners implements SmartLifecycle {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MediaRetryListeners.class);
+
+    private final ConcurrentKafkaListenerContainerFactory<String, String> factory;
+    private final RetryTopics topics;
+    private final MediaRecordHandler handler;
+    private final AcknowledgedOffsets offsets;
+    private final KafkaAdmin admin;
+    private final KafkaConfig config;
+    private final String groupId;
+
+    private final List<ConcurrentMessageListenerContainer<String, String>> containers = new ArrayList<>();
+    private ScheduledExecutorService resumer;
+    private volatile boolean running;
+
+    public MediaRetryListeners(
+            @Qualifier("batchKafkaListenerContainerFactory") ConcurrentKafkaListenerContainerFactory<String, String> factory,
+            RetryTopics topics,
+            MediaRecordHandler handler,
+            AcknowledgedOffsets offsets,
+            KafkaAdmin admin,
+            KafkaConfig config,
+            @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        this.factory = factory;
+        this.topics = topics;
+        this.handler = handler;
+        this.offsets = offsets;
+        this.admin = admin;
+        this.config = config;
+        this.groupId = groupId + "-retry";
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        topics.create(admin.getConfig(), config.getTopic().getPartitions(), config.getTopic().getReplicationFactor());
+        resumer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-retry-resume");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int tier = 0; tier < topics.getTiers().size(); tier++) {
+            String topic = topics.getTiers().get(tier);
+            ConcurrentMessageListenerContainer<String, String> container = factory.createContainer(topic);
+            // retries are the exception, one consumer per tier is plenty
+            container.setConcurrency(1);
+            container.setBeanName(topic);
+            container.getContainerProperties().setGroupId(groupId);
+            container.getContainerProperties().setClientId(topic);
+            container.setupMessageListener(new TierListener(topics.delayMs(tier), container));
+            container.start();
+            containers.add(container);
+        }
+        running = true;
+        logger.info("Retrying failed media records through {}, then {}", topics.getTiers(), topics.getDeadLetter());
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (ConcurrentMessageListenerContainer<String, String> container : containers) {
+            container.stop();
+        }
+        containers.clear();
+        if (resumer != null) {
+            resumer.shutdownNow();
+        }
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    /*
+    together with the @KafkaListener containers, after everything they depend on has started
+     */
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+
+    private final class TierListener implements BatchConsumerAwareMessageListener<String, Media> {
+
+        private final long delayMs;
+        private final ConcurrentMessageListenerContainer<?, ?> container;
+
+        TierListener(long delayMs, ConcurrentMessageListenerContainer<?, ?> container) {
+            this.delayMs = delayMs;
+            this.container = container;
+        }
+
+        @Override
+        public void onMessage(List<ConsumerRecord<String, Media>> records, Consumer<?, ?> consumer) {
+            long now = System.currentTimeMillis();
+            int due = 0;
+            while (due < records.size() && records.get(due).timestamp() + delayMs <= now) {
+                due++;
+            }
+            if (due < records.size()) {
+                Map<TopicPartition, Long> rewind = new LinkedHashMap<>();
+                for (ConsumerRecord<String, Media> record : records.subList(due, records.size())) {
+                    rewind.putIfAbsent(new TopicPartition(record.topic(), record.partition()), record.offset());
+                }
+                rewind.forEach(consumer::seek);
+                // the pause takes effect with the next poll, which then returns no records until the resume
+                container.pause();
+                long wait = records.get(due).timestamp() + delayMs - now;
+                resumer.schedule(container::resume, wait, TimeUnit.MILLISECONDS);
+            }
+            List<ConsumerRecord<String, Media>> handOff = records.subList(0, due);
+            offsets.track(handOff, handler.handle(handOff));
+            offsets.commitIfDue(consumer);
+        }
+    }
+}
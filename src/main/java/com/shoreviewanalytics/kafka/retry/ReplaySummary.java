@@ -0,0 +1,41 @@
+package com.shoreviewanalytics.kafka.retry;
+
+/*
+Returned as json by POST /media/dlt/replay. complete is false when the dead letter topic could not be read up to its end
+within tpd.retry.replay-timeout-ms; the records replayed so far are committed, the next replay continues after them.
+ */
+public class ReplaySummary {
+
+    private final long replayed;
+    private final long elapsedMs;
+    private final boolean complete;
+
+    public ReplaySummary(long replayed, long elapsedMs, boolean complete) {
+        this.replayed = replayed;
+        this.elapsedMs = elapsedMs;
+        this.complete = complete;
+    }
+
+    /*
+    records produced back to the media topic
+     */
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplaySummary [" +
+                "replayed=" + replayed + ", " +
+                "elapsedMs=" + elapsedMs + ", " +
+                "complete=" + complete + "]";
+    }
+}
@@ -0,0 +1,111 @@
+package com.shoreviewanalytics.kafka.retry;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+The topics a media record can travel through after its Cassandra write failed: one delayed retry topic per entry of
+tpd.retry.delays-ms, named after the topic and the delay, e.g. media-retry-1000, and finally the dead letter topic
+media.DLT, the name DeadLetterPublishingRecoverer uses by default. A record is only taken from a retry topic once its
+delay has passed since it was put there, see MediaRetryListeners.
+ */
+public class RetryTopics {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(RetryTopics.class);
+
+    private static final long CREATE_TIMEOUT_SECONDS = 30;
+
+    private final String topic;
+    private final List<String> tiers = new ArrayList<>();
+    private final List<Long> delaysMs;
+    private final String deadLetter;
+
+    public RetryTopics(String topic, List<Long> delaysMs) {
+        this.topic = topic;
+        this.delaysMs = Collections.unmodifiableList(new ArrayList<>(delaysMs));
+        for (Long delay : delaysMs) {
+            tiers.add(topic + "-retry-" + delay);
+        }
+        this.deadLetter = topic + ".DLT";
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public List<String> getTiers() {
+        return Collections.unmodifiableList(tiers);
+    }
+
+    public String getDeadLetter() {
+        return deadLetter;
+    }
+
+    /*
+    the position of a retry topic in tpd.retry.delays-ms, -1 for any other topic
+     */
+    public int tierOf(String topic) {
+        return tiers.indexOf(topic);
+    }
+
+    public long delayMs(int tier) {
+        return delaysMs.get(tier);
+    }
+
+    /*
+    Where a record consumed from the given topic goes when its write failed. The main topic leads to the first tier,
+    each tier to the next and the last one to the dead letter topic; a failure that will fail again the same way, see
+    MediaRecoverer.isRetryable, skips the remaining tiers.
+     */
+    public String next(String from, boolean retryable) {
+        if (!retryable) {
+            return deadLetter;
+        }
+        // the main topic is not a tier, tierOf gives -1 and the record goes to the first one
+        int tier = tierOf(from) + 1;
+        return tier < tiers.size() ? tiers.get(tier) : deadLetter;
+    }
+
+    public boolean isDeadLetter(String topic) {
+        return deadLetter.equals(topic);
+    }
+
+    /*
+    Creates the topics that do not exist yet with the partitions of the media topic, the way KafkaAdmin creates the media
+    topic itself. An unreachable broker is logged and not fatal, the producer creates missing topics with the broker's
+    defaults where auto.create.topics.enable allows it.
+     */
+    public void create(Map<String, Object> adminConfig, int partitions, short replicationFactor) {
+        List<String> names = new ArrayList<>(tiers);
+        names.add(deadLetter);
+        try (AdminClient admin = AdminClient.create(adminConfig)) {
+            Set<String> existing = admin.listTopics().names().get(CREATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            List<NewTopic> missing = new ArrayList<>();
+            for (String name : names) {
+                if (!existing.contains(name)) {
+                    missing.add(new NewTopic(name, partitions, replicationFactor));
+                }
+            }
+            if (!missing.isEmpty()) {
+                admin.createTopics(missing).all().get(CREATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                logger.info("Created retry topics {}", missing);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            logger.warn("Could not create the retry topics {}", names, ex);
+        }
+    }
+}
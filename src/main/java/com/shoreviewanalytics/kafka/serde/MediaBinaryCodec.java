@@ -0,0 +1,257 @@
+package com.shoreviewanalytics.kafka.serde;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+Compact binary encoding of a Media record. The field names are not written, the schema is implied by the version byte:
+
+    byte    0x00 marker, a json document can never start with it
+    byte    version
+    version 1: title, added_year, added_date, description, userid, videoid, each as
+            varint length + 1 (0 for null) followed by the utf-8 bytes
+    version 2: a byte with one bit per field that is not null, in the order of version 1, then the present fields as
+            title        varint length + utf-8 bytes
+            added_year   varint
+            added_date   8 bytes, milliseconds since the epoch, the precision of a Cassandra timestamp
+            description  varint length + utf-8 bytes
+            userid       16 bytes
+            videoid      16 bytes
+
+Records are written as version 2. A reader only has to know every version that has been written to the topic, so a
+field is never removed or reordered within a version; changing the layout means adding a version.
+ */
+public final class MediaBinaryCodec {
+
+    public static final byte MARKER = 0x00;
+    public static final byte VERSION = 2;
+
+    private static final int TITLE = 1;
+    private static final int ADDED_YEAR = 1 << 1;
+    private static final int ADDED_DATE = 1 << 2;
+    private static final int DESCRIPTION = 1 << 3;
+    private static final int USERID = 1 << 4;
+    private static final int VIDEOID = 1 << 5;
+
+    private MediaBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == MARKER;
+    }
+
+    public static byte[] encode(Media media) {
+        byte[] title = utf8(media.getTitle());
+        byte[] description = utf8(media.getDescription());
+        int present = ADDED_YEAR
+                | (title != null ? TITLE : 0)
+                | (media.getAdded_date() != null ? ADDED_DATE : 0)
+                | (description != null ? DESCRIPTION : 0)
+                | (media.getUserid() != null ? USERID : 0)
+                | (media.getVideoid() != null ? VIDEOID : 0);
+
+        int size = 3 + varintSize(media.getAdded_year());
+        if (title != null) {
+            size += varintSize(title.length) + title.length;
+        }
+        if (media.getAdded_date() != null) {
+            size += 8;
+        }
+        if (description != null) {
+            size += varintSize(description.length) + description.length;
+        }
+        if (media.getUserid() != null) {
+            size += 16;
+        }
+        if (media.getVideoid() != null) {
+            size += 16;
+        }
+
+        Writer writer = new Writer(new byte[size]);
+        writer.put(MARKER);
+        writer.put(VERSION);
+        writer.put((byte) present);
+        if (title != null) {
+            writer.bytes(title);
+        }
+        writer.varint(media.getAdded_year());
+        if (media.getAdded_date() != null) {
+            writer.int64(media.getAdded_date().toEpochMilli());
+        }
+        if (description != null) {
+            writer.bytes(description);
+        }
+        if (media.getUserid() != null) {
+            writer.uuid(media.getUserid());
+        }
+        if (media.getVideoid() != null) {
+            writer.uuid(media.getVideoid());
+        }
+        return writer.out;
+    }
+
+    public static Media decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary media record");
+        }
+        Reader reader = new Reader(data, 2);
+        switch (data[1]) {
+            case 1:
+                return decodeVersion1(reader);
+            case 2:
+                return decodeVersion2(reader);
+            default:
+                throw new SerializationException("Unknown media record version " + data[1]);
+        }
+    }
+
+    /*
+    records written before the domain was typed, their values are parsed like a csv row
+     */
+    private static Media decodeVersion1(Reader reader) {
+        String title = reader.string1();
+        String addedYear = reader.string1();
+        String addedDate = reader.string1();
+        String description = reader.string1();
+        String userid = reader.string1();
+        String videoid = reader.string1();
+        try {
+            return Media.parse(title, addedYear, addedDate, description, userid, videoid);
+        } catch (RuntimeException ex) {
+            throw new SerializationException("Invalid version 1 media record: " + ex.getMessage());
+        }
+    }
+
+    private static Media decodeVersion2(Reader reader) {
+        int present = reader.get();
+        String title = (present & TITLE) != 0 ? reader.string() : null;
+        int addedYear = (present & ADDED_YEAR) != 0 ? reader.varint() : 0;
+        Instant addedDate = (present & ADDED_DATE) != 0 ? Instant.ofEpochMilli(reader.int64()) : null;
+        String description = (present & DESCRIPTION) != 0 ? reader.string() : null;
+        UUID userid = (present & USERID) != 0 ? reader.uuid() : null;
+        UUID videoid = (present & VIDEOID) != 0 ? reader.uuid() : null;
+        return new Media(title, addedYear, addedDate, description, userid, videoid);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static final class Writer {
+
+        private final byte[] out;
+        private int pos;
+
+        Writer(byte[] out) {
+            this.out = out;
+        }
+
+        void put(byte b) {
+            out[pos++] = b;
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                out[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out[pos++] = (byte) value;
+        }
+
+        void bytes(byte[] value) {
+            varint(value.length);
+            System.arraycopy(value, 0, out, pos, value.length);
+            pos += value.length;
+        }
+
+        void int64(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        void uuid(UUID value) {
+            int64(value.getMostSignificantBits());
+            int64(value.getLeastSignificantBits());
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        int get() {
+            require(1);
+            return data[pos++] & 0xFF;
+        }
+
+        String string() {
+            return utf8(varint());
+        }
+
+        /*
+        version 1 strings, length + 1 with 0 for null
+         */
+        String string1() {
+            int length = varint() - 1;
+            return length < 0 ? null : utf8(length);
+        }
+
+        private String utf8(int length) {
+            require(length);
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        long int64() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        UUID uuid() {
+            return new UUID(int64(), int64());
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = (byte) get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed length in media record");
+        }
+
+        private void require(int length) {
+            if (length < 0 || length > data.length - pos) {
+                throw new SerializationException("Truncated media record");
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.shoreviewanalytics.kafka.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/*
+Reads values written by MediaBinarySerializer. The first byte tells a binary media record from json, so a topic that
+still holds json records from before the switch, or from producers that were not switched, can be read as well.
+ */
+public class MediaBinaryDeserializer implements ExtendedDeserializer<Object> {
+
+    private final JsonDeserializer<Object> json;
+
+    public MediaBinaryDeserializer(JsonDeserializer<Object> json) {
+        this.json = json;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (MediaBinaryCodec.isBinary(data)) {
+            return MediaBinaryCodec.decode(data);
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (MediaBinaryCodec.isBinary(data)) {
+            return MediaBinaryCodec.decode(data);
+        }
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
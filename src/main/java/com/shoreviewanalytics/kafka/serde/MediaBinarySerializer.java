@@ -0,0 +1,43 @@
+package com.shoreviewanalytics.kafka.serde;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/*
+Writes Media values with MediaBinaryCodec and without type headers. Every other value, e.g. the strings and JsonNodes
+sent through Sender, still goes through the JsonSerializer, so the template can keep carrying Object.
+ */
+public class MediaBinarySerializer implements ExtendedSerializer<Object> {
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof Media) {
+            return MediaBinaryCodec.encode((Media) data);
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof Media) {
+            return MediaBinaryCodec.encode((Media) data);
+        }
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.shoreviewanalytics.kafka.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/*
+Sends byte[] values as they are and serializes everything else with the wrapped serializer. Used by the template that
+forwards failed records: a record that could not be deserialized, or one replayed from the dead letter topic, only
+exists as the bytes it was consumed as, while a record whose write failed is forwarded as the Media it was bound to.
+ */
+public class PassThroughSerializer implements ExtendedSerializer<Object> {
+
+    private final ExtendedSerializer<Object> delegate;
+
+    public PassThroughSerializer(Serializer<Object> delegate) {
+        this.delegate = ExtendedSerializer.Wrapper.ensureExtended(delegate);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        return delegate.serialize(topic, headers, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        return delegate.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
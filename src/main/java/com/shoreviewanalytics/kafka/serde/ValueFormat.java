@@ -0,0 +1,24 @@
+package com.shoreviewanalytics.kafka.serde;
+
+import java.util.Locale;
+
+/*
+The encoding of record values on the media topic, selected with tpd.value-format. The binary deserializer also reads
+json, so consumers can be switched to binary before the producers are.
+ */
+public enum ValueFormat {
+
+    /*
+    Spring's JsonSerializer, field names in every record and a __TypeId__ header
+     */
+    JSON,
+
+    /*
+    MediaBinaryCodec for Media values, json for anything else
+     */
+    BINARY;
+
+    public static ValueFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
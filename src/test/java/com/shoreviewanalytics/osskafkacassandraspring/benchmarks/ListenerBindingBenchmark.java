@@ -0,0 +1,89 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ListenerBindingBenchmark
+ * Description: The part of the listener hot path that turns one consumed Media into the typed values of the insert.
+ * viaJsonTree is the path the listener used to take, converting the record to a Jackson tree, reading the values
+ * back by field name and parsing them into the column types; direct reads the already typed values from the Media as
+ * MediaWriter.bindInsert does now. Binding itself needs a
+ * prepared statement and is the same on both paths, so it is left out and no Cassandra is needed. Runs with the GC
+ * profiler, gc.alloc.rate.norm is the number of bytes allocated per record.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.ListenerBindingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerBindingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Media media;
+
+    @Setup
+    public void setUp() {
+        media = Media.parse(
+                "DataStax Cassandra Tutorials - Apache Cassandra Overview",
+                "2011",
+                "2011-10-05",
+                "Apache Cassandra is a high performance, extremely scalable, fault tolerant (i.e. no single point of failure), distributed post-relational database solution.",
+                "10d5c76c-8767-4db3-8050-e19e015b524c",
+                "2644c36e-14bd-11e5-839e-8438355b7e3a");
+    }
+
+    /*
+    the listener before: objectMapper.valueToTree per record, then record.get(name).asText() and a parse per column
+     */
+    @Benchmark
+    public void viaJsonTree(Blackhole blackhole) {
+        JsonNode record = objectMapper.valueToTree(media);
+        blackhole.consume(record.get("title").asText());
+        blackhole.consume(Integer.parseInt(record.get("added_year").asText()));
+        blackhole.consume(Media.parseTimestamp(record.get("added_date").asText()));
+        blackhole.consume(record.get("description").asText());
+        blackhole.consume(UUID.fromString(record.get("userid").asText()));
+        blackhole.consume(UUID.fromString(record.get("videoid").asText()));
+    }
+
+    @Benchmark
+    public void direct(Blackhole blackhole) {
+        blackhole.consume(media.getTitle());
+        blackhole.consume(media.getAdded_year());
+        blackhole.consume(media.getAdded_date());
+        blackhole.consume(media.getDescription());
+        blackhole.consume(media.getUserid());
+        blackhole.consume(media.getVideoid());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ListenerBindingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,105 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.shoreviewanalytics.kafka.ingest.MediaCsv;
+import com.shoreviewanalytics.kafka.ingest.ParallelMediaCsvReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MediaCsvReaderBenchmark
+ * Description: Parses a generated media csv of about fileSizeMb megabytes, built by repeating the bundled
+ * media_by_title_year.csv, once with the sequential BufferedReader path used for uploads and once with the
+ * ParallelMediaCsvReader for every thread count. Rows go to a Blackhole, so only reading and parsing is measured.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.MediaCsvReaderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MediaCsvReaderBenchmark {
+
+    @Param({"64"})
+    public int fileSizeMb;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path file;
+    private ParallelMediaCsvReader parallelReader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] sample;
+        try (InputStream is = MediaCsvReaderBenchmark.class.getResourceAsStream("/media_by_title_year.csv")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            sample = out.toByteArray();
+        }
+
+        file = Files.createTempFile("media-benchmark", ".csv");
+        long target = fileSizeMb * 1024L * 1024L;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < target; written += sample.length) {
+                out.write(sample);
+            }
+        }
+        parallelReader = new ParallelMediaCsvReader(threads, ParallelMediaCsvReader.DEFAULT_CHUNK_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        parallelReader.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public MediaCsv.Counts sequential(Blackhole blackhole) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            return MediaCsv.parse(reader, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public MediaCsv.Counts parallel(Blackhole blackhole) throws Exception {
+        return parallelReader.read(file, blackhole::consume);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MediaCsvReaderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
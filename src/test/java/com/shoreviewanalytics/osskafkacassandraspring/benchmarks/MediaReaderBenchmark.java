@@ -0,0 +1,93 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.cassandra.MediaWriter;
+import com.shoreviewanalytics.config.AppConfig;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MediaReaderBenchmark
+ * Description: Latency of GET /media/{title}/{year} without the web layer: the prepared SELECT on every call against
+ * a read through the MediaReader's cache. The row is written once during setup, so it needs a running Cassandra cluster
+ * with the kafka_examples keyspace, taken from -Dcassandra.node, -Dcassandra.port, -Dcassandra.datacenter,
+ * -Dcassandra.username and -Dcassandra.password like the MediaWriterBenchmark.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.MediaReaderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MediaReaderBenchmark {
+
+    private CqlSession session;
+    private MediaReader reader;
+    private Media record;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        record = Media.parse(
+                "DataStax Cassandra Tutorials - Apache Cassandra Overview",
+                "2011",
+                "2011-10-05",
+                "Apache Cassandra is a high performance, extremely scalable, fault tolerant (i.e. no single point of failure), distributed post-relational database solution.",
+                "10d5c76c-8767-4db3-8050-e19e015b524c",
+                "2644c36e-14bd-11e5-839e-8438355b7e3a");
+
+        MediaWriter mediaWriter = new MediaWriter();
+        session = mediaWriter.cqlSession(
+                System.getProperty("cassandra.node", "10.1.10.60"),
+                Integer.getInteger("cassandra.port", 9042),
+                System.getProperty("cassandra.datacenter", "dc1"),
+                System.getProperty("cassandra.username", "cassandra"),
+                System.getProperty("cassandra.password", "cassandra"));
+        mediaWriter.WriteToCassandra(record, session);
+
+        reader = new MediaReader(session, new AppConfig());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    @Benchmark
+    public List<Media> uncached() {
+        return reader.select(record.getTitle(), record.getAdded_year()).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public List<Media> cached() {
+        return reader.find(record.getTitle(), record.getAdded_year()).join();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MediaReaderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.serde.MediaBinaryDeserializer;
+import com.shoreviewanalytics.kafka.serde.MediaBinarySerializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MediaSerdeBenchmark
+ * Description: Serializes and deserializes one Media record shaped like a row of media_by_title_year.csv with the json
+ * serde used so far and with the binary serde selected by tpd.value-format: binary. The deserializers get the headers
+ * their serializer wrote, so the json path includes resolving the __TypeId__ header. The encoded size of the record
+ * in each format is printed during setup.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.MediaSerdeBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MediaSerdeBenchmark {
+
+    private static final String TOPIC = "media";
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private ExtendedSerializer<Object> serializer;
+    private ExtendedDeserializer<Object> deserializer;
+    private Media media;
+    private RecordHeaders headers;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        JsonDeserializer<Object> json = new JsonDeserializer<>();
+        json.addTrustedPackages("*");
+        // the same headers are read on every invocation, so they must not be consumed
+        json.setRemoveTypeHeaders(false);
+        if (format.equals("binary")) {
+            serializer = new MediaBinarySerializer();
+            deserializer = new MediaBinaryDeserializer(json);
+        } else {
+            serializer = new JsonSerializer<>();
+            deserializer = json;
+        }
+        media = Media.parse("Star Wars: Episode IV - A New Hope", "1977", "2019-05-11 10:00:00.000000+0000",
+                "The Imperial Forces, under orders from cruel Darth Vader, hold Princess Leia hostage in their efforts "
+                        + "to quell the rebellion against the Galactic Empire.",
+                "2e4b3a8f-04ef-4b0e-9d0b-7f2d8d2a10a1", "9f3c1d2e-55aa-4e3b-8c7d-1a2b3c4d5e6f");
+        headers = new RecordHeaders();
+        encoded = serializer.serialize(TOPIC, headers, media);
+        System.out.println();
+        System.out.println(format + ": " + encoded.length + " bytes per record, "
+                + headers.toArray().length + " header(s)");
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), media);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, headers, encoded);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MediaSerdeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
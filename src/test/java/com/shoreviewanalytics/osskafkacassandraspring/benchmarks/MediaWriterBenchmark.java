@@ -0,0 +1,178 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.detach.AttachmentPoint;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinition;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultPreparedStatement;
+import com.datastax.oss.protocol.internal.ProtocolConstants;
+import com.datastax.oss.protocol.internal.response.result.ColumnSpec;
+import com.datastax.oss.protocol.internal.response.result.RawType;
+import com.shoreviewanalytics.cassandra.MediaWriter;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MediaWriterBenchmark
+ * Description: Compares the original string concatenated insert with the prepared, typed insert in MediaWriter.
+ * The *Statement benchmarks only measure the client side cost of building a statement and need no cluster: the
+ * concatenated CQL is wrapped in a SimpleStatement as session.execute(String) does, and the insert is bound against a
+ * driver PreparedStatement built from the column metadata of videos_by_title_year, as a session would return it from
+ * prepare. They are part of the default selection of the jmh profile. The *Insert benchmarks measure the full
+ * round-trip and therefore need a running Cassandra cluster with the kafka_examples keyspace.
+ * The cluster is taken from -Dcassandra.node, -Dcassandra.port, -Dcassandra.datacenter, -Dcassandra.username
+ * and -Dcassandra.password and defaults to the values in application.yml.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.MediaWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MediaWriterBenchmark {
+
+    private static final String KEYSPACE = "kafka_examples";
+    private static final String TABLE = "videos_by_title_year";
+
+    private MediaWriter mediaWriter;
+    private CqlSession unconnected;
+    private Media record;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        record = Media.parse(
+                "DataStax Cassandra Tutorials - Apache Cassandra Overview",
+                "2011",
+                "2011-10-05",
+                "Apache Cassandra is a high performance, extremely scalable, fault tolerant (i.e. no single point of failure), distributed post-relational database solution.",
+                "10d5c76c-8767-4db3-8050-e19e015b524c",
+                "2644c36e-14bd-11e5-839e-8438355b7e3a");
+
+        // only prepare is called on the session, once, the MediaWriter keeps the prepared insert
+        mediaWriter = new MediaWriter();
+        unconnected = mock(CqlSession.class);
+        PreparedStatement insert = preparedInsert();
+        when(unconnected.prepare(anyString())).thenReturn(insert);
+    }
+
+    /*
+    the insert as the driver prepares it, the bind variables typed like the columns, (title, added_year) the partition key
+     */
+    private static PreparedStatement preparedInsert() {
+        int[] types = {ProtocolConstants.DataType.VARCHAR, ProtocolConstants.DataType.INT,
+                ProtocolConstants.DataType.TIMESTAMP, ProtocolConstants.DataType.VARCHAR,
+                ProtocolConstants.DataType.UUID, ProtocolConstants.DataType.UUID};
+        String[] names = {"title", "added_year", "added_date", "description", "user_id", "video_id"};
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            columns.add(new DefaultColumnDefinition(
+                    new ColumnSpec(KEYSPACE, TABLE, names[i], i, RawType.PRIMITIVES.get(types[i])), AttachmentPoint.NONE));
+        }
+        ColumnDefinitions variables = DefaultColumnDefinitions.valueOf(columns);
+        return new DefaultPreparedStatement(ByteBuffer.wrap(new byte[]{1}), "INSERT INTO " + KEYSPACE + "." + TABLE
+                + "(TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID) VALUES(?,?,?,?,?,?)", variables,
+                Arrays.asList(0, 1), null, DefaultColumnDefinitions.valueOf(Collections.emptyList()),
+                CqlIdentifier.fromInternal(KEYSPACE), Collections.emptyMap(), null, null, null, null, null,
+                Collections.emptyMap(), null, null, null, Integer.MIN_VALUE, null, null, false,
+                CodecRegistry.DEFAULT, ProtocolVersion.DEFAULT);
+    }
+
+    /*
+    the connected session of the *Insert benchmarks, only set up when one of them runs
+     */
+    @State(Scope.Benchmark)
+    public static class Cluster {
+
+        private MediaWriter mediaWriter;
+        private CqlSession session;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            mediaWriter = new MediaWriter();
+            session = mediaWriter.cqlSession(
+                    System.getProperty("cassandra.node", "10.1.10.60"),
+                    Integer.getInteger("cassandra.port", 9042),
+                    System.getProperty("cassandra.datacenter", "dc1"),
+                    System.getProperty("cassandra.username", "cassandra"),
+                    System.getProperty("cassandra.password", "cassandra"));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /*
+    the insert as it was built before the statement was prepared, kept here as the baseline
+     */
+    private static String concatenatedCql(Media record) {
+        return "INSERT INTO KAFKA_EXAMPLES.VIDEOS_BY_TITLE_YEAR(TITLE,ADDED_YEAR,ADDED_DATE,DESCRIPTION,USER_ID,VIDEO_ID) " + "" +
+                "VALUES('" + record.getTitle() + "'," + record.getAdded_year() + ",'" + record.getAdded_date() + "','" + record.getDescription() + "'," +
+                "" + record.getUserid() + "," + record.getVideoid() + ");";
+    }
+
+    @Benchmark
+    public void concatenatedStatement(Blackhole blackhole) {
+        blackhole.consume(SimpleStatement.newInstance(concatenatedCql(record)));
+    }
+
+    @Benchmark
+    public void preparedStatement(Blackhole blackhole) {
+        blackhole.consume(mediaWriter.bindInsert(record, unconnected));
+    }
+
+    @Benchmark
+    public void concatenatedInsert(Cluster cluster, Blackhole blackhole) {
+        blackhole.consume(cluster.session.execute(concatenatedCql(record)));
+    }
+
+    @Benchmark
+    public void preparedInsert(Cluster cluster, Blackhole blackhole) {
+        blackhole.consume(cluster.session.execute(cluster.mediaWriter.bindInsert(record, cluster.session)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MediaWriterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
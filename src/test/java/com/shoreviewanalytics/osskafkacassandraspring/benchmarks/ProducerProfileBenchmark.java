@@ -0,0 +1,124 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.ingest.MediaCsv;
+import com.shoreviewanalytics.kafka.producer.ProducerProfile;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProducerProfileBenchmark
+ * Description: Produces the rows of the bundled media_by_title_year.csv to an embedded Kafka broker with each
+ * ProducerProfile. One operation sends all rows and waits for the broker to acknowledge them, so the score is in
+ * files per second; the auxiliary counters report records/sec and the bytes/sec the producer put on the wire,
+ * which includes the effect of batching and compression. Runs offline, no external Kafka is needed.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.ProducerProfileBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ProducerProfileBenchmark {
+
+    private static final String TOPIC = "media-benchmark";
+
+    @Param({"DEFAULT", "LOW_LATENCY", "BULK_THROUGHPUT"})
+    public ProducerProfile profile;
+
+    private EmbeddedKafkaBroker broker;
+    private KafkaProducer<String, Object> producer;
+    private List<Media> rows;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Wire {
+        public long records;
+        public long wireBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        rows = new ArrayList<>();
+        try (InputStream is = ProducerProfileBenchmark.class.getResourceAsStream("/media_by_title_year.csv")) {
+            MediaCsv.parse(new InputStreamReader(is, StandardCharsets.UTF_8), rows::add);
+        }
+
+        broker = new EmbeddedKafkaBroker(1, true, 3, TOPIC);
+        broker.afterPropertiesSet();
+
+        Map<String, Object> props = new HashMap<>(profile.settings());
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        producer = new KafkaProducer<>(props);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producer.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public void sendFile(Wire wire) {
+        double before = outgoingBytes();
+        for (Media media : rows) {
+            producer.send(new ProducerRecord<>(TOPIC, media));
+        }
+        producer.flush();
+        wire.records += rows.size();
+        wire.wireBytes += (long) (outgoingBytes() - before);
+    }
+
+    private double outgoingBytes() {
+        for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+            if (metric.getKey().name().equals("outgoing-byte-total")
+                    && metric.getKey().group().equals("producer-metrics")) {
+                return (Double) metric.getValue().metricValue();
+            }
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ProducerProfileBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.shoreviewanalytics.osskafkacassandraspring.benchmarks;
+
+import com.shoreviewanalytics.kafka.controller.Controller;
+import com.shoreviewanalytics.kafka.ingest.IngestRun;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * TypeIdHeaderBenchmark
+ * Description: Finds the __TypeId__ header of a consumed record among extraHeaders other headers, placed in front of it
+ * the way tracing or ingest-run headers would be. streamScan is the stream over all headers Controller.typeIdHeader
+ * used to do, lastHeader is Controller.typeIdHeader as it is now. Needs neither Kafka nor Cassandra.
+ * To Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *         -Dexec.mainClass=com.shoreviewanalytics.osskafkacassandraspring.benchmarks.TypeIdHeaderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeIdHeaderBenchmark {
+
+    @Param({"0", "4"})
+    public int extraHeaders;
+
+    private Headers headers;
+
+    @Setup
+    public void setUp() {
+        headers = new RecordHeaders();
+        new IngestRun().addHeader(headers);
+        // the ingest run adds two
+        for (int i = 2; i < extraHeaders; i++) {
+            headers.add("x-trace-" + i, ("span-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        headers.add("__TypeId__", "com.shoreviewanalytics.kafka.domain.Media".getBytes(StandardCharsets.UTF_8));
+        if (extraHeaders == 0) {
+            headers.remove(IngestRun.HEADER);
+            headers.remove(IngestRun.RECORD_HEADER);
+        }
+    }
+
+    /*
+    the former implementation, kept here as the baseline
+     */
+    private static String streamScan(Headers headers) {
+        return StreamSupport.stream(headers.spliterator(), false)
+                .filter(header -> header.key().equals("__TypeId__"))
+                .findFirst().map(header -> new String(header.value())).orElse("N/A");
+    }
+
+    @Benchmark
+    public String streamScan() {
+        return streamScan(headers);
+    }
+
+    @Benchmark
+    public String lastHeader() {
+        return Controller.typeIdHeader(headers);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TypeIdHeaderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,176 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.consumer.AcknowledgedOffsets;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.retry.MediaRecoverer;
+import com.shoreviewanalytics.kafka.retry.RetryTopics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * AcknowledgedOffsetsTest
+ * Description: Checks that offsets are committed only up to the lowest record not yet handled when writes complete out
+ * of order, that commits are coalesced by count, that a revoked partition is committed right away and that a record
+ * whose forward to a retry topic the broker did not acknowledge is sent again and then lets the commit move on. Uses a
+ * MockConsumer and a mocked KafkaTemplate, does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=AcknowledgedOffsetsTest test
+ */
+public class AcknowledgedOffsetsTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("media", 0);
+
+    private final KafkaConfig config = new KafkaConfig();
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private AcknowledgedOffsets offsets;
+
+    @Before
+    public void setUp() {
+        config.getConsumer().setCommitCount(3);
+        config.getConsumer().setCommitIntervalMs(60_000);
+        offsets = new AcknowledgedOffsets(config, new MediaMetrics(new SimpleMeterRegistry()));
+        consumer.assign(Collections.singleton(PARTITION));
+    }
+
+    @Test
+    public void outOfOrderWrites_commitOnlyTheContiguousPrefix() {
+        CompletableFuture<?>[] handled = track(100, 5);
+
+        complete(handled, 2, 3);
+        assertThat(offsets.committable(PARTITION)).isEqualTo(100);
+
+        complete(handled, 0);
+        assertThat(offsets.committable(PARTITION)).isEqualTo(101);
+
+        complete(handled, 1);
+        assertThat(offsets.committable(PARTITION)).isEqualTo(104);
+
+        complete(handled, 4);
+        assertThat(offsets.committable(PARTITION)).isEqualTo(105);
+    }
+
+    @Test
+    public void commits_areCoalescedByCount() {
+        CompletableFuture<?>[] handled = track(0, 6);
+
+        complete(handled, 0, 1);
+        offsets.commitIfDue(consumer);
+        assertThat(committed()).isNull();
+
+        complete(handled, 2);
+        offsets.commitIfDue(consumer);
+        assertThat(committed().offset()).isEqualTo(3);
+
+        complete(handled, 4, 5);
+        offsets.commitIfDue(consumer);
+        assertThat(committed().offset()).isEqualTo(3);
+
+        complete(handled, 3);
+        offsets.commitIfDue(consumer);
+        assertThat(committed().offset()).isEqualTo(6);
+    }
+
+    @Test
+    public void recordThatWasNotHandled_holdsTheCommit() {
+        CompletableFuture<?>[] handled = track(0, 4);
+
+        ((CompletableFuture<?>) handled[0]).completeExceptionally(new IllegalStateException("forward failed"));
+        complete(handled, 1, 2, 3);
+
+        assertThat(offsets.committable(PARTITION)).isEqualTo(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedForward_isSentAgainAndTheCommitMovesOn() throws Exception {
+        KafkaTemplate<Object, Object> template = mock(KafkaTemplate.class);
+        SettableListenableFuture<SendResult<Object, Object>> timedOut = new SettableListenableFuture<>();
+        timedOut.setException(new TimeoutException("Expiring 1 record(s) for media-retry-1000-0"));
+        SettableListenableFuture<SendResult<Object, Object>> acknowledged = new SettableListenableFuture<>();
+        acknowledged.set(null);
+        when(template.send(any(ProducerRecord.class))).thenReturn(timedOut, acknowledged);
+        config.getRetry().setForwardBackoffMs(10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MediaRecoverer recoverer = new MediaRecoverer(template,
+                new RetryTopics("media", Collections.singletonList(1000L)), config, new MediaMetrics(registry));
+        try {
+            CompletableFuture<?>[] handled = track(0, 3);
+            ConsumerRecord<String, String> failed = new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), 0,
+                    "key", "value");
+            recoverer.recover(failed, new IllegalStateException("write timed out"))
+                    .whenComplete((deadLettered, error) -> complete(handled, 0));
+            complete(handled, 1, 2);
+
+            ((CompletableFuture<?>) handled[0]).get(5, TimeUnit.SECONDS);
+            // the bookkeeping track attached to the future may still be running on the recovery thread
+            long deadline = System.currentTimeMillis() + 5000;
+            while (offsets.committable(PARTITION) != 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(offsets.committable(PARTITION)).isEqualTo(3);
+            offsets.commitIfDue(consumer);
+
+            assertThat(committed().offset()).isEqualTo(3);
+            verify(template, times(2)).send(any(ProducerRecord.class));
+            assertThat(registry.get(MediaMetrics.FORWARD_FAILED).counter().count()).isEqualTo(1);
+        } finally {
+            recoverer.close();
+        }
+    }
+
+    @Test
+    public void revokedPartition_isCommittedRightAway() {
+        CompletableFuture<?>[] handled = track(10, 3);
+        complete(handled, 0);
+
+        offsets.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(PARTITION));
+
+        assertThat(committed().offset()).isEqualTo(11);
+        assertThat(offsets.committable(PARTITION)).isEqualTo(-1);
+    }
+
+    private CompletableFuture<?>[] track(long firstOffset, int count) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        CompletableFuture<?>[] handled = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            records.add(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), firstOffset + i, "key", "value"));
+            handled[i] = new CompletableFuture<Void>();
+        }
+        offsets.track(records, handled);
+        return handled;
+    }
+
+    private static void complete(CompletableFuture<?>[] handled, int... indexes) {
+        for (int index : indexes) {
+            ((CompletableFuture<?>) handled[index]).complete(null);
+        }
+    }
+
+    private OffsetAndMetadata committed() {
+        return consumer.committed(PARTITION);
+    }
+}
@@ -0,0 +1,148 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.cassandra.AimdLimit;
+import com.shoreviewanalytics.cassandra.WriteLimiter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AdaptiveWriteLimitTest
+ * Description: Checks the AIMD limit on the writes in flight to Cassandra and the WriteLimiter built on it: slow or
+ * overloaded writes cut the limit, once per round-trip, fast writes grow it back, and writes beyond the limit wait in
+ * the backlog without blocking the caller, which is what pauses the media listener, and a long backlog of writes that
+ * fail right away is drained without a stack overflow. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=AdaptiveWriteLimitTest test
+ */
+public class AdaptiveWriteLimitTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void slowWrites_cutTheLimitOncePerRoundTrip() {
+        AimdLimit limit = new AimdLimit(8, 128, TARGET, 0.5);
+        long now = TimeUnit.SECONDS.toNanos(1);
+
+        limit.onSample(now, SLOW, false);
+        // answered within the same round-trip, caused by the same spike
+        limit.onSample(now + FAST, SLOW, false);
+
+        assertThat(limit.get()).isEqualTo(64);
+
+        limit.onSample(now + SLOW, SLOW, false);
+
+        assertThat(limit.get()).isEqualTo(32);
+    }
+
+    @Test
+    public void limit_staysWithinBounds() {
+        AimdLimit limit = new AimdLimit(8, 16, TARGET, 0.5);
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            now += SLOW;
+            limit.onSample(now, FAST, true);
+        }
+        assertThat(limit.get()).isEqualTo(8);
+
+        for (int i = 0; i < 1000; i++) {
+            limit.onSample(now, FAST, false);
+        }
+        assertThat(limit.get()).isEqualTo(16);
+    }
+
+    @Test
+    public void fastWrites_growTheLimitByAboutOnePerRound() {
+        AimdLimit limit = new AimdLimit(8, 128, TARGET, 0.5);
+        limit.onSample(0, SLOW, false);
+        assertThat(limit.get()).isEqualTo(64);
+
+        // a round of 64 answered writes, plus the one that completes the step
+        for (int i = 0; i < 65; i++) {
+            limit.onSample(SLOW, FAST, false);
+        }
+
+        assertThat(limit.get()).isEqualTo(65);
+    }
+
+    @Test
+    public void writesBeyondTheLimit_waitInTheBacklog() throws Exception {
+        WriteLimiter limiter = new WriteLimiter(AimdLimit.fixed(2), error -> true);
+        List<CompletableFuture<String>> sent = new ArrayList<>();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(limiter.submit(() -> {
+                CompletableFuture<String> write = new CompletableFuture<>();
+                sent.add(write);
+                return write;
+            }));
+        }
+
+        assertThat(sent).hasSize(2);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getBacklog()).isEqualTo(1);
+
+        sent.get(0).complete("first");
+
+        assertThat(results.get(0).get()).isEqualTo("first");
+        assertThat(sent).hasSize(3);
+        assertThat(limiter.getBacklog()).isZero();
+
+        sent.get(1).complete("second");
+        sent.get(2).complete("third");
+
+        assertThat(limiter.awaitIdle(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(results.get(2).get()).isEqualTo("third");
+    }
+
+    @Test
+    public void backlogOfWritesFailingRightAway_isDrainedWithoutRecursion() {
+        WriteLimiter limiter = new WriteLimiter(AimdLimit.fixed(2), error -> false);
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            limiter.submit(() -> {
+                CompletableFuture<Void> write = new CompletableFuture<>();
+                sent.add(write);
+                return write;
+            });
+        }
+        // like executeAsync on a session that has been closed
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        closed.completeExceptionally(new IllegalStateException("Session is closed"));
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            results.add(limiter.submit(() -> closed));
+        }
+        assertThat(limiter.getBacklog()).isEqualTo(20000);
+
+        sent.get(0).complete(null);
+
+        assertThat(limiter.getBacklog()).isZero();
+        assertThat(results).allMatch(CompletableFuture::isCompletedExceptionally);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void overloadErrors_shrinkTheLimit() {
+        WriteLimiter limiter = new WriteLimiter(new AimdLimit(1, 8, TARGET, 0.5),
+                error -> error instanceof IllegalStateException);
+
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalArgumentException("bad value"));
+        limiter.submit(() -> failed);
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        CompletableFuture<Void> overloaded = new CompletableFuture<>();
+        overloaded.completeExceptionally(new IllegalStateException("timeout"));
+        limiter.submit(() -> overloaded);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,118 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.shoreviewanalytics.cassandra.CassandraMediaSink;
+import com.shoreviewanalytics.cassandra.CassandraWarmup;
+import com.shoreviewanalytics.cassandra.MediaPager;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.cassandra.MediaWriter;
+import com.shoreviewanalytics.cassandra.SchemaProvisioner;
+import com.shoreviewanalytics.config.AppConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * CassandraWarmupTest
+ * Description: Runs the startup warm-up against a mocked session: every statement is prepared, every warm-up query is
+ * sent warmup-iterations times and each phase is timed and published, a failing connect leaves the path cold without
+ * failing the startup and is run again until the path is hot, and a disabled warm-up does not touch the session.
+ * Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=CassandraWarmupTest test
+ */
+public class CassandraWarmupTest {
+
+    private static final String QUERY = "SELECT release_version FROM system.local";
+
+    private final AppConfig config = new AppConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CqlSession session;
+    private CassandraWarmup warmup;
+
+    @Before
+    public void setUp() {
+        session = mock(CqlSession.class);
+        when(session.prepare(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(session.executeAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        config.setWarmupEnabled(true);
+        config.setWarmupTimeoutMs(10000L);
+        config.setWarmupQueries(Collections.singletonList(QUERY));
+        config.setWarmupIterations(4);
+    }
+
+    @After
+    public void tearDown() {
+        if (warmup != null) {
+            warmup.stop();
+        }
+    }
+
+    private CassandraWarmup warmup() {
+        return new CassandraWarmup(config, session, new CassandraMediaSink(new MediaWriter(), session, registry),
+                new MediaReader(session, config), new MediaPager(session), new SchemaProvisioner(config), registry);
+    }
+
+    @Test
+    public void start_preparesAndQueriesBeforeReturning() {
+        warmup = warmup();
+        warmup.start();
+
+        assertThat(warmup.isHot()).isTrue();
+        // the insert, the partition select and both listings
+        verify(session, times(4)).prepare(anyString());
+        verify(session, times(4)).executeAsync(QUERY);
+        assertThat(warmup.getPhases()).containsOnlyKeys("tls", "connect", "prepare", "queries", "ready");
+        for (String phase : Arrays.asList("tls", "connect", "prepare", "queries", "ready")) {
+            assertThat(registry.get(CassandraWarmup.STARTUP).tag("phase", phase).timeGauge().value(TimeUnit.MILLISECONDS))
+                    .isEqualTo(warmup.getPhases().get(phase).doubleValue());
+        }
+    }
+
+    @Test
+    public void failedConnect_isRunAgainUntilThePathIsHot() throws Exception {
+        when(session.getName())
+                .thenThrow(new IllegalStateException("Could not reach any contact point"))
+                .thenReturn("s0");
+        config.setWarmupRetryMs(500L);
+        warmup = warmup();
+        warmup.start();
+
+        assertThat(warmup.isHot()).isFalse();
+        assertThat(warmup.getFailure()).hasMessage("Could not reach any contact point");
+        assertThat(warmup.getPhases()).containsOnlyKeys("tls");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!warmup.isHot() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(warmup.isHot()).isTrue();
+        assertThat(warmup.getFailure()).isNull();
+        assertThat(warmup.getPhases()).containsOnlyKeys("tls", "connect", "prepare", "queries", "ready");
+    }
+
+    @Test
+    public void disabled_isHotWithoutTouchingTheSession() {
+        config.setWarmupEnabled(false);
+        warmup = warmup();
+        warmup.start();
+
+        assertThat(warmup.isHot()).isTrue();
+        assertThat(warmup.getPhases()).isEmpty();
+        verifyZeroInteractions(session);
+    }
+}
@@ -0,0 +1,212 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.cassandra.MediaSink;
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.retry.DeadLetterReplayer;
+import com.shoreviewanalytics.kafka.retry.ReplaySummary;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.rule.EmbeddedKafkaRule;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DeadLetterTest
+ * Description: Sends a good record, a record whose write keeps failing and a record that can not be deserialized to an
+ * embedded broker. Checks that the good record is written once, that the failing record is tried once per retry tier
+ * before it reaches media.DLT with the cause in its headers, that the unreadable record goes to media.DLT right away
+ * with its original bytes, and that a replay writes the failing record once Cassandra, here a test sink, accepts it.
+ * To Run: mvn -Dtest=DeadLetterTest test
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "tpd.retry.delays-ms=200,400")
+@DirtiesContext
+public class DeadLetterTest {
+
+    private static final String TOPIC = "media";
+    private static final String DLT = "media.DLT";
+    private static final long TIMEOUT_MS = 30_000;
+
+    @ClassRule
+    public static EmbeddedKafkaRule embeddedKafka = new EmbeddedKafkaRule(1, true, 3, TOPIC, DLT);
+
+    /*
+    fails every write of a record titled "fail" while failing is set, with an error a retry could fix
+     */
+    static class FailingMediaSink implements MediaSink {
+
+        volatile boolean failing = true;
+        final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> written = new ConcurrentHashMap<>();
+
+        @Override
+        public CompletableFuture<?>[] writeAsync(List<Media> records) {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+            for (int i = 0; i < futures.length; i++) {
+                String title = records.get(i).getTitle();
+                attempts.computeIfAbsent(title, t -> new AtomicInteger()).incrementAndGet();
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                if (failing && title.equals("fail")) {
+                    future.completeExceptionally(new IllegalStateException("simulated write timeout"));
+                } else {
+                    written.computeIfAbsent(title, t -> new AtomicInteger()).incrementAndGet();
+                    future.complete(null);
+                }
+                futures[i] = future;
+            }
+            return futures;
+        }
+
+        int attempts(String title) {
+            AtomicInteger count = attempts.get(title);
+            return count == null ? 0 : count.get();
+        }
+
+        int written(String title) {
+            AtomicInteger count = written.get(title);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    @TestConfiguration
+    static class FailingCassandra {
+
+        @Bean
+        @Primary
+        public FailingMediaSink failingMediaSink() {
+            return new FailingMediaSink();
+        }
+    }
+
+    @Autowired
+    private FailingMediaSink sink;
+
+    @Autowired
+    private KafkaTemplate<String, Object> template;
+
+    @Autowired
+    private DeadLetterReplayer replayer;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Test
+    public void failedRecords_reachTheDeadLetterTopic_andReplay() throws Exception {
+
+        ContainerTestUtils.waitForAssignment(registry.getListenerContainer("media-01"), 3);
+
+        byte[] garbage = "not a media record".getBytes(StandardCharsets.UTF_8);
+        template.send(TOPIC, "ok", media("ok"));
+        template.send(TOPIC, "fail", media("fail"));
+        template.flush();
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(embeddedKafka.getEmbeddedKafka());
+        KafkaTemplate<String, byte[]> raw = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                producerProps, new StringSerializer(), new ByteArraySerializer()));
+        raw.send(TOPIC, "garbage", garbage);
+        raw.flush();
+
+        try (Consumer<String, byte[]> dlt = deadLetterConsumer()) {
+            List<ConsumerRecord<String, byte[]>> dead = poll(dlt, 2);
+
+            assertThat(sink.written("ok")).isEqualTo(1);
+            // the media topic and both tiers
+            assertThat(sink.attempts("fail")).isEqualTo(3);
+
+            ConsumerRecord<String, byte[]> failed = find(dead, "fail");
+            assertThat(header(failed, "kafka_dlt-original-topic")).isEqualTo("media-retry-400");
+            assertThat(header(failed, "kafka_dlt-exception-message")).isEqualTo("simulated write timeout");
+
+            ConsumerRecord<String, byte[]> unreadable = find(dead, "garbage");
+            assertThat(unreadable.value()).isEqualTo(garbage);
+            assertThat(header(unreadable, "kafka_dlt-original-topic")).isEqualTo(TOPIC);
+
+            sink.failing = false;
+            ReplaySummary summary = replayer.replay();
+
+            assertThat(summary.getReplayed()).isEqualTo(2);
+            assertThat(summary.isComplete()).isTrue();
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (sink.written("fail") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(sink.written("fail")).isEqualTo(1);
+
+            // the unreadable record fails again, only it is left for the next replay
+            assertThat(find(poll(dlt, 1), "garbage").value()).isEqualTo(garbage);
+            assertThat(replayer.replay().getReplayed()).isEqualTo(1);
+        }
+    }
+
+    private Consumer<String, byte[]> deadLetterConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dead-letter-test", "false", embeddedKafka.getEmbeddedKafka());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(
+                props, new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        embeddedKafka.getEmbeddedKafka().consumeFromAnEmbeddedTopic(consumer, DLT);
+        return consumer;
+    }
+
+    private static List<ConsumerRecord<String, byte[]>> poll(Consumer<String, byte[]> consumer, int count) {
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (records.size() < count && System.currentTimeMillis() < deadline) {
+            for (ConsumerRecord<String, byte[]> record : KafkaTestUtils.getRecords(consumer, 100)) {
+                records.add(record);
+            }
+        }
+        assertThat(records).hasSize(count);
+        return records;
+    }
+
+    private static ConsumerRecord<String, byte[]> find(List<ConsumerRecord<String, byte[]>> records, String key) {
+        return records.stream().filter(record -> key.equals(record.key())).findFirst()
+                .orElseThrow(() -> new AssertionError("no dead letter with key " + key + " in " + records));
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String key) {
+        return new String(record.headers().lastHeader(key).value(), StandardCharsets.UTF_8);
+    }
+
+    private static Media media(String title) {
+        Media media = new Media();
+        media.setTitle(title);
+        media.setAdded_year(2019);
+        media.setAdded_date(Instant.now());
+        media.setDescription("dead letter test");
+        media.setUserid(UUID.randomUUID());
+        media.setVideoid(UUID.randomUUID());
+        return media;
+    }
+}
@@ -0,0 +1,130 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.ingest.IngestRun;
+import com.shoreviewanalytics.kafka.ingest.IngestSummary;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IngestRunTest
+ * Description: Checks that an ingest run finishes exactly when the last produced record has been accounted for on both
+ * the broker and the Cassandra side, whatever order the callbacks arrive in, and that a record delivered twice counts
+ * once. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=IngestRunTest test
+ */
+public class IngestRunTest {
+
+    @Test
+    public void finishes_whenLastRecordIsPersisted() {
+        IngestRun run = new IngestRun();
+        Headers first = produce(run);
+        Headers second = produce(run);
+        run.acknowledged();
+        run.persisted(first);
+        run.producingComplete(1);
+        run.acknowledged();
+
+        assertThat(run.isFinished()).isFalse();
+
+        run.persisted(second);
+
+        assertThat(run.isFinished()).isTrue();
+        IngestSummary summary = run.finished().join();
+        assertThat(summary.getProduced()).isEqualTo(2);
+        assertThat(summary.getRejected()).isEqualTo(1);
+        assertThat(summary.getPersisted()).isEqualTo(2);
+        assertThat(summary.isComplete()).isTrue();
+    }
+
+    @Test
+    public void redeliveredRecord_countsOnce() {
+        IngestRun run = new IngestRun();
+        Headers first = produce(run);
+        Headers second = produce(run);
+        run.acknowledged();
+        run.acknowledged();
+        run.producingComplete(0);
+
+        run.persisted(first);
+        // consumed again after a rebalance, before its offset was committed
+        run.persisted(first);
+
+        assertThat(run.isFinished()).isFalse();
+        assertThat(run.summary().getPersisted()).isEqualTo(1);
+
+        run.duplicate(second);
+
+        IngestSummary summary = run.finished().join();
+        assertThat(summary.getPersisted()).isEqualTo(1);
+        assertThat(summary.getDuplicates()).isEqualTo(1);
+    }
+
+    @Test
+    public void persistedBeforeAcknowledged_waitsForAcknowledgement() {
+        IngestRun run = new IngestRun();
+        Headers record = produce(run);
+        run.producingComplete(0);
+        run.persisted(record);
+
+        assertThat(run.isFinished()).isFalse();
+
+        run.acknowledged();
+
+        assertThat(run.isFinished()).isTrue();
+    }
+
+    @Test
+    public void failedSends_areNotExpectedInCassandra() {
+        IngestRun run = new IngestRun();
+        produce(run);
+        Headers sent = produce(run);
+        run.failed();
+        run.acknowledged();
+        run.producingComplete(0);
+
+        assertThat(run.isFinished()).isFalse();
+
+        run.writeFailed(sent);
+
+        IngestSummary summary = run.finished().join();
+        assertThat(summary.getFailed()).isEqualTo(1);
+        assertThat(summary.getWriteFailed()).isEqualTo(1);
+        assertThat(summary.getPersisted()).isZero();
+    }
+
+    @Test
+    public void emptyRun_finishesImmediately() {
+        IngestRun run = new IngestRun();
+        run.producingComplete(0);
+
+        assertThat(run.isFinished()).isTrue();
+    }
+
+    @Test
+    public void header_roundTrips() {
+        IngestRun run = new IngestRun();
+        RecordHeaders headers = new RecordHeaders();
+        run.addHeader(headers);
+        RecordHeaders next = new RecordHeaders();
+        run.addHeader(next);
+
+        assertThat(IngestRun.idOf(headers)).isEqualTo(run.getId());
+        assertThat(IngestRun.recordOf(headers)).isEqualTo(0);
+        assertThat(IngestRun.recordOf(next)).isEqualTo(1);
+        assertThat(IngestRun.idOf(new RecordHeaders())).isNull();
+        assertThat(IngestRun.recordOf(new RecordHeaders())).isEqualTo(-1);
+    }
+
+    /*
+    the headers MediaCsvIngester sends a record of the run with
+     */
+    private static Headers produce(IngestRun run) {
+        Headers headers = new RecordHeaders();
+        run.addHeader(headers);
+        run.produced();
+        return headers;
+    }
+}
@@ -0,0 +1,59 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.config.KafkaConfig;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * KafkaConfigTest
+ * Description: Checks the startup validation of the topic and consumer settings and how the listener concurrency is
+ * derived from them. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=KafkaConfigTest test
+ */
+public class KafkaConfigTest {
+
+    @Test
+    public void defaults_areValid() {
+        KafkaConfig config = new KafkaConfig();
+
+        config.validate();
+
+        assertThat(config.effectiveConcurrency())
+                .isBetween(1, config.getTopic().getPartitions());
+    }
+
+    @Test
+    public void concurrency_aboveThePartitionCount_isRejected() {
+        KafkaConfig config = new KafkaConfig();
+        config.getTopic().setPartitions(3);
+        config.getConsumer().setConcurrency(4);
+
+        assertThatThrownBy(config::validate)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tpd.consumer.concurrency");
+    }
+
+    @Test
+    public void explicitConcurrency_isUsedAsIs() {
+        KafkaConfig config = new KafkaConfig();
+        config.getTopic().setPartitions(12);
+        config.getConsumer().setConcurrency(6);
+
+        config.validate();
+
+        assertThat(config.effectiveConcurrency()).isEqualTo(6);
+    }
+
+    @Test
+    public void fetchWait_mustFitIntoThePollInterval() {
+        KafkaConfig config = new KafkaConfig();
+        config.getConsumer().setMaxPollIntervalMs(1000);
+        config.getConsumer().setFetchMaxWaitMs(1000);
+
+        assertThatThrownBy(config::validate)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tpd.consumer.fetch-max-wait-ms");
+    }
+}
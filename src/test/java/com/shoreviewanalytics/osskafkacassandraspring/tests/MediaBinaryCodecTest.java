@@ -0,0 +1,120 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.serde.MediaBinaryCodec;
+import com.shoreviewanalytics.kafka.serde.MediaBinaryDeserializer;
+import com.shoreviewanalytics.kafka.serde.MediaBinarySerializer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MediaBinaryCodecTest
+ * Description: Round trips Media records through the binary encoding, and checks that the binary serializer and
+ * deserializer still handle json values. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaBinaryCodecTest test
+ */
+public class MediaBinaryCodecTest {
+
+    private static Media media() {
+        return Media.parse("Grüße aus Köln", "2019", "2019-05-11 10:00:00.123000+0000",
+                new String(new char[300]).replace('\0', 'd'),
+                "2e4b3a8f-04ef-4b0e-9d0b-7f2d8d2a10a1", "9f3c1d2e-55aa-4e3b-8c7d-1a2b3c4d5e6f");
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        Media media = media();
+
+        Media decoded = MediaBinaryCodec.decode(MediaBinaryCodec.encode(media));
+
+        assertThat(decoded.toString()).isEqualTo(media.toString());
+    }
+
+    @Test
+    public void encode_keepsNulls() {
+        Media media = new Media("", 2019, null, null, null, UUID.fromString("2644c36e-14bd-11e5-839e-8438355b7e3a"));
+
+        Media decoded = MediaBinaryCodec.decode(MediaBinaryCodec.encode(media));
+
+        assertThat(decoded.getTitle()).isEmpty();
+        assertThat(decoded.getAdded_date()).isNull();
+        assertThat(decoded.getUserid()).isNull();
+        assertThat(decoded.toString()).isEqualTo(media.toString());
+    }
+
+    @Test
+    public void decode_readsVersion1Records() {
+        // title "t", added_year "2011", added_date "2011-10-05", description null and the two uuids, as version 1 wrote them
+        byte[] version1 = version1("t", "2011", "2011-10-05", null,
+                "10d5c76c-8767-4db3-8050-e19e015b524c", "2644c36e-14bd-11e5-839e-8438355b7e3a");
+
+        Media decoded = MediaBinaryCodec.decode(version1);
+
+        assertThat(decoded.getAdded_year()).isEqualTo(2011);
+        assertThat(decoded.getAdded_date()).isEqualTo(Instant.parse("2011-10-05T00:00:00Z"));
+        assertThat(decoded.getDescription()).isNull();
+        assertThat(decoded.getUserid()).isEqualTo(UUID.fromString("10d5c76c-8767-4db3-8050-e19e015b524c"));
+    }
+
+    private static byte[] version1(String... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MediaBinaryCodec.MARKER);
+        out.write(1);
+        for (String field : fields) {
+            if (field == null) {
+                out.write(0);
+            } else {
+                byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                out.write(utf8.length + 1);
+                out.write(utf8, 0, utf8.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void encode_isSmallerThanJson() {
+        Media media = media();
+        byte[] json = new JsonSerializer<Media>().serialize("media", new RecordHeaders(), media);
+
+        assertThat(MediaBinaryCodec.encode(media).length).isLessThan(json.length);
+    }
+
+    @Test
+    public void decode_rejectsUnknownVersionAndTruncatedRecords() {
+        byte[] encoded = MediaBinaryCodec.encode(media());
+        byte[] otherVersion = encoded.clone();
+        otherVersion[1] = 99;
+
+        assertThatThrownBy(() -> MediaBinaryCodec.decode(otherVersion)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> MediaBinaryCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    public void serde_fallsBackToJsonForOtherValues() {
+        MediaBinarySerializer serializer = new MediaBinarySerializer();
+        JsonDeserializer<Object> json = new JsonDeserializer<>();
+        json.addTrustedPackages("*");
+        MediaBinaryDeserializer deserializer = new MediaBinaryDeserializer(json);
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] greeting = serializer.serialize("media", headers, "hello");
+        byte[] media = serializer.serialize("media", new RecordHeaders(), media());
+
+        assertThat(deserializer.deserialize("media", headers, greeting)).isEqualTo("hello");
+        assertThat(deserializer.deserialize("media", new RecordHeaders(), media)).isInstanceOf(Media.class);
+    }
+}
@@ -0,0 +1,114 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.cassandra.BloomFilter;
+import com.shoreviewanalytics.cassandra.MediaDeduplicator;
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MediaDeduplicatorTest
+ * Description: Checks the Bloom filter behind the dedup stage: no false negatives, a false positive rate close to the
+ * configured one, that changed content is not taken for a duplicate, that its hit rate is published and that a
+ * checkpoint survives a restart.
+ * Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaDeduplicatorTest test
+ */
+public class MediaDeduplicatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Media media(UUID videoid, String description) {
+        return new Media("title", 2011, Instant.parse("2011-10-05T00:00:00Z"), description,
+                UUID.fromString("10d5c76c-8767-4db3-8050-e19e015b524c"), videoid);
+    }
+
+    private static long[] hash(int i) {
+        return BloomFilter.murmur3(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void bloomFilter_hasNoFalseNegatives_andAboutTheConfiguredFalsePositives() {
+        BloomFilter filter = BloomFilter.create(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            long[] hash = hash(i);
+            filter.put(hash[0], hash[1]);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            long[] added = hash(i);
+            long[] other = hash(i + 10000);
+            assertThat(filter.mightContain(added[0], added[1])).isTrue();
+            if (filter.mightContain(other[0], other[1])) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isBetween(50, 200);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.02);
+    }
+
+    @Test
+    public void changedContent_isNotADuplicate() {
+        MediaDeduplicator deduplicator = new MediaDeduplicator(true, 1000, 0.000001,
+                folder.getRoot().toPath().resolve("dedup.bloom"), 0);
+        deduplicator.start();
+        UUID videoid = UUID.randomUUID();
+
+        assertThat(deduplicator.isPersisted(media(videoid, "first"))).isFalse();
+        deduplicator.persisted(media(videoid, "first"));
+
+        assertThat(deduplicator.isPersisted(media(videoid, "first"))).isTrue();
+        assertThat(deduplicator.isPersisted(media(videoid, "second"))).isFalse();
+        assertThat(deduplicator.stats().getHitRate()).isEqualTo(1.0 / 3);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        deduplicator.bindTo(registry);
+        assertThat(registry.get(MediaMetrics.DEDUP_HIT_RATE).gauge().value()).isEqualTo(1.0 / 3);
+        assertThat(registry.get(MediaMetrics.DEDUP_RECORDS).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void checkpoint_isReloadedOnRestart() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("dedup.bloom");
+        Media media = media(UUID.randomUUID(), "description");
+
+        MediaDeduplicator before = new MediaDeduplicator(true, 1000, 0.000001, file, 0);
+        before.start();
+        before.persisted(media);
+        before.close();
+
+        MediaDeduplicator after = new MediaDeduplicator(true, 1000, 0.000001, file, 0);
+        after.start();
+        assertThat(after.isPersisted(media)).isTrue();
+        assertThat(after.stats().getRecords()).isEqualTo(1);
+
+        MediaDeduplicator resized = new MediaDeduplicator(true, 5000, 0.000001, file, 0);
+        resized.start();
+        assertThat(resized.isPersisted(media)).isFalse();
+    }
+
+    @Test
+    public void disabled_neverSkips() {
+        MediaDeduplicator deduplicator = new MediaDeduplicator(false, 1000, 0.000001,
+                folder.getRoot().toPath().resolve("dedup.bloom"), 0);
+        deduplicator.start();
+        Media media = media(UUID.randomUUID(), "description");
+        deduplicator.persisted(media);
+
+        assertThat(deduplicator.isPersisted(media)).isFalse();
+        assertThat(deduplicator.stats().isEnabled()).isFalse();
+    }
+}
@@ -19,6 +19,8 @@ import org.springframework.kafka.test.rule.EmbeddedKafkaRule;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.time.Instant;
+import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -87,11 +89,11 @@ public class MediaListenerTest {
         Media media_message = new Media();
 
         media_message.setTitle("test title");
-        media_message.setAdded_year("2019");
-        media_message.setAdded_date("05-11-2019");
+        media_message.setAdded_year(2019);
+        media_message.setAdded_date(Instant.parse("2019-05-11T00:00:00Z"));
         media_message.setDescription("test description");
-        media_message.setUserid("12345");
-        media_message.setVideoid("12345");
+        media_message.setUserid(UUID.fromString("10d5c76c-8767-4db3-8050-e19e015b524c"));
+        media_message.setVideoid(UUID.fromString("2644c36e-14bd-11e5-839e-8438355b7e3a"));
 
         System.out.println("the media message content is " + media_message.toString());
 
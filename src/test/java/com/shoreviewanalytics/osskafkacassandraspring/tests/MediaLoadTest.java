@@ -0,0 +1,247 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.producer.MediaKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.rule.EmbeddedKafkaRule;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MediaLoadTest
+ * Description: A load harness for the Kafka side of the pipeline. Produces synthetic Media records at a fixed rate to an
+ * embedded broker, where the real media listener consumes them and writes them to a SimulatedMediaSink in place of
+ * Cassandra. Reports the sustained throughput, the highest consumer lag, how often the listener was paused and the
+ * p50/p99/p999 of the media.end.to.end timer, so partitions and concurrency can be sized without a cluster.
+ * The load is set with system properties, the defaults keep it short enough for every build:
+ * -Dload.records (20000), -Dload.rate records per second (5000), -Dload.min-latency-us (500),
+ * -Dload.mean-extra-latency-us (1500), -Dload.error-rate (0.001), -Dload.max-in-flight (128) and
+ * -Dload.latency-target-us (10000) of the in-flight limit, together with -Dtpd.topic.partitions and
+ * -Dtpd.consumer.concurrency. Failed writes are retried through the retry topics with short delays, so the few
+ * records that fail do not hold the run up for the production delays.
+ * To Run: mvn -Dtest=MediaLoadTest -Dload.records=500000 -Dload.rate=50000 -Dtpd.topic.partitions=6 test
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "tpd.retry.delays-ms=100,200,400")
+@DirtiesContext
+public class MediaLoadTest {
+
+    private static final String TOPIC = "media";
+
+    private static final int PARTITIONS = Integer.getInteger("tpd.topic.partitions", 3);
+    private static final int RECORDS = Integer.getInteger("load.records", 20000);
+    private static final int RATE = Integer.getInteger("load.rate", 5000);
+    private static final long COMPLETION_TIMEOUT_MS = 120_000;
+    private static final long LAG_SAMPLE_MS = 100;
+    /*
+    the group of the media listener, a @KafkaListener with an id uses the id as its group
+     */
+    private static final String LISTENER_GROUP = "media-01";
+
+    @ClassRule
+    public static EmbeddedKafkaRule embeddedKafka = new EmbeddedKafkaRule(1, true, PARTITIONS, TOPIC);
+
+    @TestConfiguration
+    static class SimulatedCassandra {
+
+        @Bean
+        @Primary
+        public SimulatedMediaSink simulatedMediaSink() {
+            return new SimulatedMediaSink(
+                    Long.getLong("load.min-latency-us", 500),
+                    Long.getLong("load.mean-extra-latency-us", 1500),
+                    Double.parseDouble(System.getProperty("load.error-rate", "0.001")),
+                    Integer.getInteger("load.max-in-flight", 128),
+                    Long.getLong("load.latency-target-us", 10000));
+        }
+    }
+
+    @Autowired
+    private SimulatedMediaSink sink;
+
+    @Autowired
+    private KafkaTemplate<String, Object> template;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MediaKey mediaKey;
+
+    @After
+    public void tearDown() {
+        sink.close();
+    }
+
+    @Test
+    public void sustainsOfferedLoad() throws Exception {
+
+        MessageListenerContainer container = registry.getListenerContainer("media-01");
+        ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+
+        AtomicLong acknowledged = new AtomicLong();
+        LagSampler lag = new LagSampler(acknowledged);
+        lag.start();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+        for (int i = 0; i < RECORDS; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Media media = syntheticMedia(i);
+            template.send(new ProducerRecord<>(TOPIC, mediaKey.of(media), media))
+                    .addCallback(result -> acknowledged.incrementAndGet(), ex -> { });
+        }
+        template.flush();
+        long produced = System.nanoTime();
+
+        // failed writes come back through the retry topics, a record is done once it is written or dead-lettered
+        Counter deadLettered = meterRegistry.get(MediaMetrics.DEAD_LETTERED).tag("reason", "write").counter();
+        long deadline = System.currentTimeMillis() + COMPLETION_TIMEOUT_MS;
+        while (sink.getWritten() + deadLettered.count() < RECORDS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long finished = System.nanoTime();
+        lag.stop();
+
+        Timer endToEnd = meterRegistry.get(MediaMetrics.END_TO_END).timer();
+        double elapsedSeconds = (finished - start) / 1e9;
+
+        System.out.println();
+        System.out.println("MediaLoadTest: " + RECORDS + " records offered at " + RATE + "/s to " + PARTITIONS + " partitions");
+        System.out.printf("  produced in        %.2f s (%.0f records/s), %d acknowledged%n",
+                (produced - start) / 1e9, RECORDS / ((produced - start) / 1e9), acknowledged.get());
+        System.out.printf("  written in         %.2f s (%.0f records/s sustained), %d written, %d failed, %.0f retried, %.0f dead-lettered%n",
+                elapsedSeconds, sink.getWritten() / elapsedSeconds, sink.getWritten(), sink.getFailed(),
+                meterRegistry.get(MediaMetrics.RETRIED).counter().count(), deadLettered.count());
+        System.out.printf("  consumer lag       max %d, last %d records%n", lag.getMax(), lag.getLast());
+        System.out.printf("  backpressure       paused %.0f times, in-flight limit %d at the end%n",
+                meterRegistry.get(MediaMetrics.PAUSES).counter().count(), sink.getLimit());
+        for (ValueAtPercentile percentile : endToEnd.takeSnapshot().percentileValues()) {
+            System.out.printf("  end to end p%-5s %.1f ms%n",
+                    percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+        }
+        double commits = meterRegistry.get(MediaMetrics.COMMITS).counter().count();
+        System.out.printf("  offset commits     %.0f, %.0f records per commit%n", commits, RECORDS / Math.max(1, commits));
+        System.out.println();
+
+        // every record has been handled, so the commits catch up with the end of every partition
+        long committed = 0;
+        long commitDeadline = System.currentTimeMillis() + COMPLETION_TIMEOUT_MS;
+        try (AdminClient admin = AdminClient.create(Collections.singletonMap(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getEmbeddedKafka().getBrokersAsString()))) {
+            while (committed < RECORDS && System.currentTimeMillis() < commitDeadline) {
+                committed = 0;
+                for (OffsetAndMetadata offset : admin.listConsumerGroupOffsets(LISTENER_GROUP)
+                        .partitionsToOffsetAndMetadata().get().values()) {
+                    committed += offset.offset();
+                }
+                Thread.sleep(LAG_SAMPLE_MS);
+            }
+        }
+
+        assertThat(committed).isEqualTo(RECORDS);
+        assertThat(acknowledged.get()).isEqualTo(RECORDS);
+        assertThat(sink.getWritten() + (long) deadLettered.count()).isEqualTo(RECORDS);
+        assertThat(endToEnd.count()).isEqualTo(sink.getWritten());
+    }
+
+    private static Media syntheticMedia(int i) {
+        return new Media(
+                "Synthetic Title " + (i % 5000),
+                2000 + i % 20,
+                Instant.ofEpochSecond(946684800L + i),
+                "Synthetic description of load test record " + i,
+                new UUID(0x10d5c76c87674db3L, i % 100),
+                new UUID(0x2644c36e14bd11e5L, i));
+    }
+
+    /*
+    Samples the consumer lag as the records the broker acknowledged minus the records the media listener received. The
+    committed offsets of the group are no measure here, they only move with the coalesced commits, see
+    AcknowledgedOffsets.
+     */
+    private class LagSampler implements Runnable {
+
+        private final Thread thread = new Thread(this, "lag-sampler");
+        private final AtomicLong acknowledged;
+        private final Counter consumed;
+        private volatile boolean running = true;
+        private volatile long max;
+        private volatile long last;
+
+        LagSampler(AtomicLong acknowledged) {
+            this.acknowledged = acknowledged;
+            this.consumed = meterRegistry.get(MediaMetrics.CONSUME_RECORDS).counter();
+        }
+
+        void start() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        long getLast() {
+            return last;
+        }
+
+        @Override
+        public void run() {
+            do {
+                long lag = Math.max(0, acknowledged.get() - (long) consumed.count());
+                last = lag;
+                max = Math.max(max, lag);
+                try {
+                    Thread.sleep(LAG_SAMPLE_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } while (running);
+        }
+    }
+}
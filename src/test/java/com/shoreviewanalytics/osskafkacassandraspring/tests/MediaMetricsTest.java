@@ -0,0 +1,102 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.ingest.MediaCsv;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.metrics.TimedDeserializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MediaMetricsTest
+ * Description: Checks that the stage timers of MediaMetrics record what they are given: one csv parse sample per valid
+ * row, one deserialize sample per value, outcomes as tags and the end-to-end latency from the record timestamp.
+ * Uses a SimpleMeterRegistry and does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaMetricsTest test
+ */
+public class MediaMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private MediaMetrics metrics;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new MediaMetrics(registry);
+    }
+
+    @Test
+    public void csvParse_timesValidRowsOnly() throws IOException {
+        String csv = "a$2011$2011-10-05$d$" + uuid(1) + "$" + uuid(2) + "\n"
+                + "not a row\n"
+                + "b$2012$2012-10-05$d$" + uuid(3) + "$" + uuid(4) + "\n";
+        List<Object> rows = new ArrayList<>();
+
+        MediaCsv.Counts counts = MediaCsv.parse(new StringReader(csv), rows::add, metrics::parsed);
+
+        assertThat(counts.getRejected()).isEqualTo(1);
+        assertThat(registry.get(MediaMetrics.CSV_PARSE).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void deserialize_timesEveryValue() {
+        TimedDeserializer<String> deserializer = new TimedDeserializer<>(new StringDeserializer(), metrics);
+
+        String value = deserializer.deserialize("media", new RecordHeaders(), "x".getBytes(StandardCharsets.UTF_8));
+        deserializer.deserialize("media", "y".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(value).isEqualTo("x");
+        assertThat(registry.get(MediaMetrics.DESERIALIZE).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void outcomes_areTagged() {
+        long start = System.nanoTime();
+        metrics.produced(start, true);
+        metrics.produced(start, false);
+        metrics.written(start, true);
+        metrics.written(start, true);
+
+        assertThat(registry.get(MediaMetrics.PRODUCE_ACK).tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get(MediaMetrics.PRODUCE_ACK).tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(registry.get(MediaMetrics.CASSANDRA_WRITE).tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get(MediaMetrics.CASSANDRA_WRITE).tag("outcome", "failure").timer().count()).isZero();
+    }
+
+    @Test
+    public void endToEnd_measuresFromRecordTimestamp() {
+        metrics.persisted(System.currentTimeMillis() - 250);
+        // no timestamp, and a timestamp ahead of this clock, are not recorded
+        metrics.persisted(-1);
+        metrics.persisted(System.currentTimeMillis() + 60_000);
+
+        assertThat(registry.get(MediaMetrics.END_TO_END).timer().count()).isEqualTo(1);
+        assertThat(registry.get(MediaMetrics.END_TO_END).timer().totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    public void consumed_countsRecords() {
+        metrics.consumed(500, System.nanoTime());
+        metrics.consumed(20, System.nanoTime());
+        metrics.duplicate();
+
+        assertThat(registry.get(MediaMetrics.CONSUME_RECORDS).counter().count()).isEqualTo(520);
+        assertThat(registry.get(MediaMetrics.CONSUME_POLL).timer().count()).isEqualTo(2);
+        assertThat(registry.get(MediaMetrics.DUPLICATES).counter().count()).isEqualTo(1);
+    }
+
+    private static String uuid(int i) {
+        return "00000000-0000-0000-0000-00000000000" + i;
+    }
+}
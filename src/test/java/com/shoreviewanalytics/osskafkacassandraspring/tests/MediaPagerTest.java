@@ -0,0 +1,149 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ExecutionInfo;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.shoreviewanalytics.cassandra.MediaPager;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MediaPagerTest
+ * Description: Checks the paging of the MediaPager against a mocked session that answers with two pages: all rows are
+ * handed out page by page, maxPages stops the listing with a page token, and the token resumes it with the driver's
+ * paging state. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaPagerTest test
+ */
+public class MediaPagerTest {
+
+    private static final ByteBuffer PAGING_STATE = ByteBuffer.wrap(new byte[]{1, 2, 3, (byte) 0xfe});
+
+    private final List<String> lines = new ArrayList<>();
+    private BoundStatement statement;
+    private AsyncResultSet secondPage;
+    private MediaPager pager;
+
+    @Before
+    public void setUp() {
+        CqlSession session = mock(CqlSession.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        statement = mock(BoundStatement.class);
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind()).thenReturn(statement);
+        when(prepared.bind(any())).thenReturn(statement);
+        when(statement.setPageSize(anyInt())).thenReturn(statement);
+        when(statement.setPagingState(any(ByteBuffer.class))).thenReturn(statement);
+
+        secondPage = page(false, row("c", 2012));
+        AsyncResultSet firstPage = page(true, row("a", 2011), row("b", 2011));
+        when(firstPage.fetchNextPage()).thenReturn(CompletableFuture.completedFuture(secondPage));
+        ExecutionInfo info = mock(ExecutionInfo.class);
+        when(info.getPagingState()).thenReturn(PAGING_STATE);
+        when(firstPage.getExecutionInfo()).thenReturn(info);
+        when(session.executeAsync(statement)).thenReturn(CompletableFuture.completedFuture(firstPage));
+
+        pager = new MediaPager(session);
+    }
+
+    @Test
+    public void stream_handsOutAllPages() throws IOException {
+        String next = pager.stream(null, null, 2, 0, rows());
+
+        assertThat(next).isNull();
+        assertThat(lines).containsExactly("a", "b", "--", "c", "--");
+    }
+
+    @Test
+    public void stream_stopsAfterMaxPagesWithToken() throws IOException {
+        String next = pager.stream(2011, null, 2, 1, rows());
+
+        assertThat(lines).containsExactly("a", "b", "--");
+        assertThat(next).isNotNull();
+        assertThat(MediaPager.decodePageToken(next)).isEqualTo(PAGING_STATE);
+    }
+
+    @Test
+    public void stream_resumesFromToken() throws IOException {
+        String token = MediaPager.encodePageToken(PAGING_STATE);
+
+        pager.stream(2011, token, 2, 0, rows());
+
+        verify(statement).setPagingState(PAGING_STATE);
+    }
+
+    @Test
+    public void stream_withoutToken_startsAtTheBeginning() throws IOException {
+        pager.stream(null, null, 2, 0, rows());
+
+        verify(statement, never()).setPagingState(any(ByteBuffer.class));
+    }
+
+    @Test
+    public void stream_rejectsPageSizeOutOfRange() {
+        assertThatThrownBy(() -> pager.stream(null, null, 0, 0, rows()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pager.stream(null, null, MediaPager.MAX_PAGE_SIZE + 1, 0, rows()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void decodePageToken_rejectsInvalidToken() {
+        assertThatThrownBy(() -> MediaPager.decodePageToken("not a token!"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MediaPager.Rows rows() {
+        return new MediaPager.Rows() {
+            @Override
+            public void row(Media media) {
+                lines.add(media.getTitle());
+            }
+
+            @Override
+            public void endOfPage() {
+                lines.add("--");
+            }
+        };
+    }
+
+    private static AsyncResultSet page(boolean hasMorePages, Row... rows) {
+        AsyncResultSet page = mock(AsyncResultSet.class);
+        when(page.currentPage()).thenReturn(Arrays.asList(rows));
+        when(page.hasMorePages()).thenReturn(hasMorePages);
+        return page;
+    }
+
+    private static Row row(String title, int year) {
+        Row row = mock(Row.class);
+        when(row.getString("title")).thenReturn(title);
+        when(row.getInt("added_year")).thenReturn(year);
+        when(row.getInstant("added_date")).thenReturn(Instant.parse("2011-10-05T00:00:00Z"));
+        when(row.getString("description")).thenReturn("description");
+        when(row.getUuid("user_id")).thenReturn(UUID.randomUUID());
+        when(row.getUuid("video_id")).thenReturn(UUID.randomUUID());
+        return row;
+    }
+}
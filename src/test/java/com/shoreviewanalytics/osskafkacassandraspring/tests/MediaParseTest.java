@@ -0,0 +1,93 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shoreviewanalytics.kafka.domain.Media;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MediaParseTest
+ * Description: Checks that the added_date literals found in the csv files become the same timestamp Cassandra would
+ * have parsed from the previously concatenated CQL, that a row with a value that does not fit its column is rejected
+ * when it is parsed, and that the typed Media survives the json serde, which rejects a record without added_year. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaParseTest test
+ */
+public class MediaParseTest {
+
+    @Test
+    public void parseTimestamp_dateOnly_isMidnightUtc() {
+        assertThat(Media.parseTimestamp("2011-10-05"))
+                .isEqualTo(Instant.parse("2011-10-05T00:00:00Z"));
+    }
+
+    @Test
+    public void parseTimestamp_withOffset() {
+        assertThat(Media.parseTimestamp("2015-03-01 08:00:00+0000"))
+                .isEqualTo(Instant.parse("2015-03-01T08:00:00Z"));
+        assertThat(Media.parseTimestamp("2015-03-01 08:00:00+0100"))
+                .isEqualTo(Instant.parse("2015-03-01T07:00:00Z"));
+    }
+
+    @Test
+    public void parseTimestamp_isoWithFraction() {
+        assertThat(Media.parseTimestamp("2015-02-24T00:00:01.000Z"))
+                .isEqualTo(Instant.parse("2015-02-24T00:00:01Z"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseTimestamp_rejectsGarbage() {
+        Media.parseTimestamp("05-11-2019");
+    }
+
+    @Test
+    public void parse_typesEveryColumn() {
+        Media media = Media.parse("title", "2011", "2011-10-05", "description",
+                "10d5c76c-8767-4db3-8050-e19e015b524c", "2644c36e-14bd-11e5-839e-8438355b7e3a");
+
+        assertThat(media.getAdded_year()).isEqualTo(2011);
+        assertThat(media.getAdded_date()).isEqualTo(Instant.parse("2011-10-05T00:00:00Z"));
+        assertThat(media.getUserid()).isEqualTo(UUID.fromString("10d5c76c-8767-4db3-8050-e19e015b524c"));
+        assertThat(media.getVideoid().version()).isEqualTo(1);
+    }
+
+    @Test
+    public void parse_rejectsInvalidColumns() {
+        assertThatThrownBy(() -> Media.parse("title", "MMXI", "2011-10-05", "d",
+                "10d5c76c-8767-4db3-8050-e19e015b524c", "2644c36e-14bd-11e5-839e-8438355b7e3a"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("added_year");
+        assertThatThrownBy(() -> Media.parse("title", "2011", "2011-10-05", "d",
+                "12345", "2644c36e-14bd-11e5-839e-8438355b7e3a"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("userid");
+    }
+
+    @Test
+    public void json_roundTrips() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Media media = Media.parse("title", "2015", "2015-03-01 08:00:00+0000", "description",
+                "10d5c76c-8767-4db3-8050-e19e015b524c", "2644c36e-14bd-11e5-839e-8438355b7e3a");
+
+        String json = objectMapper.writeValueAsString(media);
+        Media read = objectMapper.readValue(json, Media.class);
+
+        assertThat(json).contains("\"added_date\":\"2015-03-01T08:00:00Z\"");
+        assertThat(read.toString()).isEqualTo(media.toString());
+    }
+
+    @Test
+    public void json_withoutYear_isRejected() {
+        String json = "{\"title\":\"title\",\"added_date\":\"2015-03-01T08:00:00Z\",\"description\":\"d\","
+                + "\"userid\":\"10d5c76c-8767-4db3-8050-e19e015b524c\","
+                + "\"videoid\":\"2644c36e-14bd-11e5-839e-8438355b7e3a\"}";
+
+        assertThatThrownBy(() -> new ObjectMapper().readValue(json, Media.class))
+                .isInstanceOf(JsonMappingException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("added_year");
+    }
+}
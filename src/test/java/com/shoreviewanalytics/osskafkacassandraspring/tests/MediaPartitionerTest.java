@@ -0,0 +1,85 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.producer.MediaKey;
+import com.shoreviewanalytics.kafka.producer.MediaPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MediaPartitionerTest
+ * Description: Checks that rows of the same Cassandra partition land on the same Kafka partition whether they were sent
+ * with their key or without one. Uses a hand built cluster of one node and a 12 partition topic, does not need Kafka.
+ * To Run: mvn -Dtest=MediaPartitionerTest test
+ */
+public class MediaPartitionerTest {
+
+    private static final String TOPIC = "media";
+    private static final int PARTITIONS = 12;
+
+    private Cluster cluster;
+    private MediaPartitioner partitioner;
+
+    @Before
+    public void setUp() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        cluster = new Cluster("test", Collections.singletonList(node), partitions,
+                Collections.emptySet(), Collections.emptySet());
+        partitioner = new MediaPartitioner();
+        partitioner.configure(Collections.singletonMap(MediaPartitioner.KEY_CONFIG, "partition"));
+    }
+
+    private static Media media(String title, int year) {
+        return new Media(title, year, null, null, null, UUID.randomUUID());
+    }
+
+    private int partition(String key, Media media) {
+        return partitioner.partition(TOPIC, key, key == null ? null : key.getBytes(StandardCharsets.UTF_8),
+                media, null, cluster);
+    }
+
+    @Test
+    public void sameCassandraPartition_sameKafkaPartition() {
+        Media first = media("Cassandra Overview", 2011);
+        Media second = media("Cassandra Overview", 2011);
+
+        assertThat(partition(MediaKey.PARTITION.of(first), first))
+                .isEqualTo(partition(MediaKey.PARTITION.of(second), second))
+                .isEqualTo(partition(null, second));
+    }
+
+    @Test
+    public void cassandraPartitions_spreadOverKafkaPartitions() {
+        boolean[] used = new boolean[PARTITIONS];
+        for (int year = 1950; year < 2020; year++) {
+            used[partition(null, media("title", year))] = true;
+        }
+
+        for (boolean partitionUsed : used) {
+            assertThat(partitionUsed).isTrue();
+        }
+    }
+
+    @Test
+    public void keyedRecords_matchTheDefaultHash() {
+        byte[] key = "2011:Cassandra Overview".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(partition("2011:Cassandra Overview", null))
+                .isEqualTo(MediaPartitioner.partitionOf(key, PARTITIONS));
+    }
+}
@@ -0,0 +1,93 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.kafka.domain.Media;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MediaReaderTest
+ * Description: Checks the read cache of the MediaReader with a counting loader in place of Cassandra and a manual clock:
+ * repeated reads are answered from the cache, a write invalidates its partition, entries expire after the ttl and the
+ * hits and misses are published as cache meters.
+ * Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaReaderTest test
+ */
+public class MediaReaderTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private MediaReader reader;
+
+    @Before
+    public void setUp() {
+        Ticker ticker = nanos::get;
+        reader = new MediaReader((title, year) -> {
+            queries.incrementAndGet();
+            List<Media> rows = Collections.singletonList(new Media(title, year,
+                    Instant.parse("2011-10-05T00:00:00Z"), "description", UUID.randomUUID(), UUID.randomUUID()));
+            return CompletableFuture.completedFuture(rows);
+        }, 100, 1000, ticker);
+    }
+
+    @Test
+    public void repeatedReads_areCached() {
+        List<Media> first = reader.find("title", 2011).join();
+        List<Media> second = reader.find("title", 2011).join();
+        reader.find("title", 2012).join();
+
+        assertThat(second).isSameAs(first);
+        assertThat(queries.get()).isEqualTo(2);
+        assertThat(reader.stats().getHits()).isEqualTo(1);
+        assertThat(reader.stats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void hitsAndMisses_arePublished() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        reader.bindTo(registry);
+
+        reader.find("title", 2011).join();
+        reader.find("title", 2011).join();
+
+        assertThat(registry.get("cache.gets").tag("cache", MediaReader.CACHE).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", MediaReader.CACHE).tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidate_reloadsThePartition() {
+        reader.find("title", 2011).join();
+
+        reader.invalidate("title", 2011);
+        reader.find("title", 2011).join();
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void entries_expireAfterTheTtl() {
+        reader.find("title", 2011).join();
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        reader.find("title", 2011).join();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+        reader.find("title", 2011).join();
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+}
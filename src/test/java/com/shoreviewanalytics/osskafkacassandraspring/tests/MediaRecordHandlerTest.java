@@ -0,0 +1,116 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.shoreviewanalytics.cassandra.MediaDeduplicator;
+import com.shoreviewanalytics.cassandra.MediaReader;
+import com.shoreviewanalytics.cassandra.MediaSink;
+import com.shoreviewanalytics.config.KafkaConfig;
+import com.shoreviewanalytics.kafka.consumer.MediaRecordHandler;
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.ingest.IngestRuns;
+import com.shoreviewanalytics.kafka.metrics.MediaMetrics;
+import com.shoreviewanalytics.kafka.retry.MediaRecoverer;
+import com.shoreviewanalytics.kafka.retry.RetryTopics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MediaRecordHandlerTest
+ * Description: Fails a write on a thread standing in for the Cassandra driver's I/O thread while the send of the forward
+ * to the retry topic blocks, as KafkaTemplate.send does while it fetches metadata or the producer buffer is full, and
+ * checks that the driver thread is not held up and the record counts as handled once the forward is sent.
+ * Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=MediaRecordHandlerTest test
+ */
+public class MediaRecordHandlerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CompletableFuture<Void> write = new CompletableFuture<>();
+    private final CountDownLatch sendStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSend = new CountDownLatch(1);
+    private MediaRecoverer recoverer;
+    private MediaRecordHandler handler;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        KafkaTemplate<Object, Object> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sendStarted.countDown();
+            releaseSend.await();
+            SettableListenableFuture<SendResult<Object, Object>> sent = new SettableListenableFuture<>();
+            sent.set(new SendResult<>(invocation.getArgument(0), null));
+            return sent;
+        });
+        MediaMetrics metrics = new MediaMetrics(new SimpleMeterRegistry());
+        recoverer = new MediaRecoverer(template, new RetryTopics("media", Collections.singletonList(1000L)),
+                new KafkaConfig(), metrics);
+        MediaSink sink = records -> new CompletableFuture<?>[]{write};
+        handler = new MediaRecordHandler(sink, new IngestRuns(),
+                new MediaDeduplicator(false, 1000, 0.000001, folder.getRoot().toPath().resolve("dedup.bloom"), 0),
+                new MediaReader((title, year) -> CompletableFuture.completedFuture(Collections.emptyList()),
+                        10, 60000, Ticker.systemTicker()),
+                recoverer, metrics);
+    }
+
+    @After
+    public void tearDown() {
+        releaseSend.countDown();
+        recoverer.close();
+    }
+
+    @Test
+    public void failedWrite_isRecoveredOffTheDriverThread() throws Exception {
+        List<ConsumerRecord<String, Media>> records =
+                Collections.singletonList(new ConsumerRecord<>("media", 0, 42, "key", media()));
+        CompletableFuture<?> handled = handler.handle(records)[0];
+
+        Thread driver = new Thread(() -> write.completeExceptionally(new DriverTimeoutException("Query timed out")),
+                "driver-io");
+        driver.start();
+        driver.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(driver.isAlive()).isFalse();
+        assertThat(sendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handled).isNotDone();
+
+        releaseSend.countDown();
+        handled.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Media media() {
+        Media media = new Media();
+        media.setTitle("test title");
+        media.setAdded_year(2019);
+        media.setAdded_date(Instant.parse("2019-05-11T00:00:00Z"));
+        media.setDescription("test description");
+        media.setUserid(UUID.randomUUID());
+        media.setVideoid(UUID.randomUUID());
+        return media;
+    }
+}
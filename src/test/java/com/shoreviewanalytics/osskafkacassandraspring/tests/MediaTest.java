@@ -24,6 +24,8 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.util.Map;
+import java.time.Instant;
+import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -161,11 +163,11 @@ public class MediaTest {
 
         Media media = new Media();
         media.setTitle("test title");
-        media.setAdded_year("2019");
-        media.setAdded_date("05-11-2019");
+        media.setAdded_year(2019);
+        media.setAdded_date(Instant.parse("2019-05-11T00:00:00Z"));
         media.setDescription("test description");
-        media.setUserid("12345");
-        media.setVideoid("12345");
+        media.setUserid(UUID.fromString("10d5c76c-8767-4db3-8050-e19e015b524c"));
+        media.setVideoid(UUID.fromString("2644c36e-14bd-11e5-839e-8438355b7e3a"));
 
         System.out.println("The object mapper value is " + objectMapper.valueToTree(media).toString());
 
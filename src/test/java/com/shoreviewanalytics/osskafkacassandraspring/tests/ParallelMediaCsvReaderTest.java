@@ -0,0 +1,73 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.kafka.domain.Media;
+import com.shoreviewanalytics.kafka.ingest.MediaCsv;
+import com.shoreviewanalytics.kafka.ingest.ParallelMediaCsvReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ParallelMediaCsvReaderTest
+ * Description: Reads the bundled media csv with the parallel reader, using chunks small enough to split the file many
+ * times, and checks it yields exactly the rows of the sequential parse. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=ParallelMediaCsvReaderTest test
+ */
+public class ParallelMediaCsvReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void read_smallChunks_matchesSequentialParse() throws Exception {
+
+        Path file = folder.newFile("media.csv").toPath();
+        try (InputStream is = ParallelMediaCsvReaderTest.class.getResourceAsStream("/media_by_title_year.csv")) {
+            Files.write(file, readAll(is));
+        }
+        Files.write(file, "not$enough$columns\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Queue<Media> sequential = new ConcurrentLinkedQueue<>();
+        MediaCsv.Counts expected = MediaCsv.parse(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), sequential::add);
+
+        Queue<Media> parallel = new ConcurrentLinkedQueue<>();
+        MediaCsv.Counts counts;
+        try (ParallelMediaCsvReader reader = new ParallelMediaCsvReader(4, 2048)) {
+            counts = reader.read(file, parallel::add);
+        }
+
+        assertThat(expected.getRows()).isEqualTo(430);
+        assertThat(counts.getRows()).isEqualTo(expected.getRows());
+        assertThat(counts.getRejected()).isEqualTo(1);
+        assertThat(toStrings(parallel)).containsExactlyInAnyOrderElementsOf(toStrings(sequential));
+    }
+
+    private static List<String> toStrings(Queue<Media> media) {
+        return media.stream().map(Media::toString).collect(Collectors.toList());
+    }
+
+    private static byte[] readAll(InputStream is) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
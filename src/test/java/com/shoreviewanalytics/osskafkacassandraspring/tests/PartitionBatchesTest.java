@@ -0,0 +1,56 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.cassandra.PartitionBatches;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PartitionBatchesTest
+ * Description: Checks how pending writes are cut into single-partition batches. Items are strings of the form
+ * "partition:row" and every character counts as one byte. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=PartitionBatchesTest test
+ */
+public class PartitionBatchesTest {
+
+    private static List<List<String>> group(int maxRows, long maxBytes, String... items) {
+        return PartitionBatches.group(Arrays.asList(items),
+                item -> item.substring(0, item.indexOf(':')),
+                String::length,
+                maxRows,
+                maxBytes);
+    }
+
+    @Test
+    public void group_neverMixesPartitions() {
+        List<List<String>> batches = group(10, 1000, "a:1", "b:1", "a:2", "c:1", "b:2");
+
+        assertThat(batches).containsExactly(
+                Arrays.asList("a:1", "a:2"),
+                Arrays.asList("b:1", "b:2"),
+                Arrays.asList("c:1"));
+    }
+
+    @Test
+    public void group_splitsOnMaxRows() {
+        List<List<String>> batches = group(2, 1000, "a:1", "a:2", "a:3", "a:4", "a:5");
+
+        assertThat(batches).containsExactly(
+                Arrays.asList("a:1", "a:2"),
+                Arrays.asList("a:3", "a:4"),
+                Arrays.asList("a:5"));
+    }
+
+    @Test
+    public void group_splitsOnMaxBytes() {
+        List<List<String>> batches = group(10, 8, "a:1", "a:2", "a:333333", "a:4");
+
+        assertThat(batches).containsExactly(
+                Arrays.asList("a:1", "a:2"),
+                Arrays.asList("a:333333"),
+                Arrays.asList("a:4"));
+    }
+}
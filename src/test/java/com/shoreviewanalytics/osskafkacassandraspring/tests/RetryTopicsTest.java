@@ -0,0 +1,67 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.datastax.oss.driver.api.core.DriverTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.shoreviewanalytics.kafka.retry.MediaRecoverer;
+import com.shoreviewanalytics.kafka.retry.RetryTopics;
+import org.junit.Test;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RetryTopicsTest
+ * Description: Checks the way a failed media record takes through the retry tiers to the dead letter topic, and which
+ * failures skip the tiers. Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=RetryTopicsTest test
+ */
+public class RetryTopicsTest {
+
+    private final RetryTopics topics = new RetryTopics("media", Arrays.asList(1000L, 10000L, 60000L));
+
+    @Test
+    public void tiers_areNamedAfterTheirDelay() {
+        assertThat(topics.getTiers()).containsExactly("media-retry-1000", "media-retry-10000", "media-retry-60000");
+        assertThat(topics.getDeadLetter()).isEqualTo("media.DLT");
+        assertThat(topics.tierOf("media-retry-10000")).isEqualTo(1);
+        assertThat(topics.tierOf("media")).isEqualTo(-1);
+        assertThat(topics.delayMs(2)).isEqualTo(60000L);
+    }
+
+    @Test
+    public void retryableFailure_walksEveryTierThenTheDeadLetterTopic() {
+        assertThat(topics.next("media", true)).isEqualTo("media-retry-1000");
+        assertThat(topics.next("media-retry-1000", true)).isEqualTo("media-retry-10000");
+        assertThat(topics.next("media-retry-10000", true)).isEqualTo("media-retry-60000");
+        assertThat(topics.next("media-retry-60000", true)).isEqualTo("media.DLT");
+        assertThat(topics.isDeadLetter(topics.next("media-retry-60000", true))).isTrue();
+    }
+
+    @Test
+    public void permanentFailure_skipsTheTiers() {
+        assertThat(topics.next("media", false)).isEqualTo("media.DLT");
+        assertThat(topics.next("media-retry-1000", false)).isEqualTo("media.DLT");
+    }
+
+    @Test
+    public void noTiers_failsStraightToTheDeadLetterTopic() {
+        RetryTopics none = new RetryTopics("media", Collections.emptyList());
+
+        assertThat(none.getTiers()).isEmpty();
+        assertThat(none.next("media", true)).isEqualTo("media.DLT");
+    }
+
+    @Test
+    public void onlyFailuresARetryCanFix_areRetried() {
+        assertThat(MediaRecoverer.isRetryable(new DriverTimeoutException("timed out"))).isTrue();
+        assertThat(MediaRecoverer.isRetryable(new CompletionException(new DriverTimeoutException("timed out")))).isTrue();
+        assertThat(MediaRecoverer.isRetryable(new InvalidQueryException(null, "unconfigured table"))).isFalse();
+        assertThat(MediaRecoverer.isRetryable(new IllegalArgumentException("does not bind"))).isFalse();
+        assertThat(MediaRecoverer.isRetryable(
+                new DeserializationException("unreadable", new byte[0], false, null))).isFalse();
+    }
+}
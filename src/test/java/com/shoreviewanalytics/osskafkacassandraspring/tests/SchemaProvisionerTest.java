@@ -0,0 +1,125 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.shoreviewanalytics.cassandra.SchemaProfile;
+import com.shoreviewanalytics.cassandra.SchemaProvisioner;
+import com.shoreviewanalytics.cassandra.dbDDL;
+import com.shoreviewanalytics.config.AppConfig;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * SchemaProvisionerTest
+ * Description: Checks the schema profiles and their overrides, the comparison with the live schema as the driver's
+ * metadata reports it, where unchanged options give no ALTER, and the CQL dbDDL renders for the options.
+ * Does not need Kafka or Cassandra.
+ * To Run: mvn -Dtest=SchemaProvisionerTest test
+ */
+public class SchemaProvisionerTest {
+
+    @Test
+    public void settings_overrideTheProfile() {
+        AppConfig config = new AppConfig();
+        config.setSchemaProfile("write-heavy");
+        config.setSchemaCompaction("leveled");
+        config.setSchemaGcGraceSeconds(3600);
+
+        Map<String, Object> options = SchemaProvisioner.desiredOptions(config);
+
+        assertThat(options.get(SchemaProfile.COMPACTION)).isEqualTo(SchemaProfile.compaction("leveled"));
+        assertThat(options.get(SchemaProfile.COMPRESSION)).isEqualTo(SchemaProfile.lz4(64));
+        assertThat(options.get(SchemaProfile.BLOOM_FILTER_FP_CHANCE)).isEqualTo(0.01);
+        assertThat(options.get(SchemaProfile.GC_GRACE_SECONDS)).isEqualTo(3600);
+        assertThat(SchemaProvisioner.desiredOptions(new AppConfig())).isEmpty();
+    }
+
+    @Test
+    public void invalidSettings_areRejected() {
+        AppConfig chunk = new AppConfig();
+        chunk.setSchemaCompressionChunkKb(48);
+        AppConfig fpChance = new AppConfig();
+        fpChance.setSchemaBloomFilterFpChance(0.0);
+        AppConfig compaction = new AppConfig();
+        compaction.setSchemaCompaction("date-tiered");
+
+        assertThatThrownBy(() -> SchemaProvisioner.desiredOptions(chunk)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SchemaProvisioner.desiredOptions(fpChance)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SchemaProvisioner.desiredOptions(compaction)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void liveSchemaWithTheProfile_needsNoChange() {
+        Map<String, Object> live = new HashMap<>();
+        live.put("compaction", strings("class", "org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy",
+                "max_threshold", "32", "min_threshold", "4", "tombstone_threshold", "0.2"));
+        live.put("compression", strings("chunk_length_in_kb", "64", "class", "org.apache.cassandra.io.compress.LZ4Compressor"));
+        live.put("bloom_filter_fp_chance", 0.01);
+        live.put("gc_grace_seconds", 86400);
+        live.put("default_time_to_live", 0);
+
+        assertThat(SchemaProvisioner.diff(SchemaProfile.WRITE_HEAVY.options(), live)).isEmpty();
+    }
+
+    @Test
+    public void changedOptions_areAlteredWithTheWantedValue() {
+        Map<String, Object> live = new HashMap<>();
+        live.put("compaction", strings("class", "org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy",
+                "max_threshold", "32", "min_threshold", "4"));
+        live.put("compression", strings("chunk_length_in_kb", "64", "class", "org.apache.cassandra.io.compress.LZ4Compressor"));
+        live.put("bloom_filter_fp_chance", 0.01);
+        live.put("gc_grace_seconds", 864000);
+
+        Map<String, Object> changed = SchemaProvisioner.diff(SchemaProfile.READ_HEAVY.options(), live);
+
+        // gc_grace_seconds is the same in both
+        assertThat(changed).containsOnlyKeys("compaction", "compression", "bloom_filter_fp_chance");
+        assertThat(changed.get("compaction")).isEqualTo(SchemaProfile.compaction("leveled"));
+    }
+
+    @Test
+    public void replication_matchesOnlyTheSameFactorsPerDatacenter() {
+        Map<String, String> live = strings("class", "org.apache.cassandra.locator.NetworkTopologyStrategy", "dc1", "3");
+
+        assertThat(SchemaProvisioner.replicationMatches(Collections.singletonMap("dc1", 3), live)).isTrue();
+        assertThat(SchemaProvisioner.replicationMatches(Collections.singletonMap("dc1", 1), live)).isFalse();
+        assertThat(SchemaProvisioner.replicationMatches(Collections.singletonMap("dc1", 3),
+                strings("class", "org.apache.cassandra.locator.SimpleStrategy", "replication_factor", "3"))).isFalse();
+    }
+
+    @Test
+    public void ddl_rendersTheOptions() {
+        CqlSession session = mock(CqlSession.class);
+        dbDDL ddl = new dbDDL(session);
+
+        ddl.alterTable("kafka_examples", "videos_by_title_year", SchemaProfile.TIME_SERIES.options());
+
+        ArgumentCaptor<SimpleStatement> statement = ArgumentCaptor.forClass(SimpleStatement.class);
+        verify(session).execute(statement.capture());
+        assertThat(statement.getValue().getQuery())
+                .startsWith("ALTER TABLE kafka_examples.videos_by_title_year WITH ")
+                .contains("compaction={'class':'TimeWindowCompactionStrategy','compaction_window_unit':'DAYS',"
+                        + "'compaction_window_size':1}")
+                .contains("compression={'class':'LZ4Compressor','chunk_length_in_kb':64}")
+                .contains("bloom_filter_fp_chance=0.01")
+                .contains("gc_grace_seconds=86400");
+    }
+
+    private static Map<String, String> strings(String... keysAndValues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
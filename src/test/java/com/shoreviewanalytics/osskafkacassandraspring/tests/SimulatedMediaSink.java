@@ -0,0 +1,96 @@
+package com.shoreviewanalytics.osskafkacassandraspring.tests;
+
+import com.shoreviewanalytics.cassandra.AimdLimit;
+import com.shoreviewanalytics.cassandra.MediaSink;
+import com.shoreviewanalytics.cassandra.WriteLimiter;
+import com.shoreviewanalytics.kafka.domain.Media;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+An in-process stand-in for Cassandra. Every record is acknowledged after minLatencyMicros plus an exponentially
+distributed delay with a mean of meanExtraLatencyMicros, so most writes are fast and a few are slow, and fails with
+errorRate. Like MediaWriter the writes go through a WriteLimiter whose AIMD limit moves between maxInFlight / 16 and
+maxInFlight around targetLatencyMicros, and writes beyond the limit wait in its backlog, so the listener is paused
+and resumed as it would be in front of Cassandra.
+ */
+public class SimulatedMediaSink implements MediaSink {
+
+    private final long minLatencyMicros;
+    private final long meanExtraLatencyMicros;
+    private final double errorRate;
+    private final WriteLimiter limiter;
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "simulated-cassandra");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public SimulatedMediaSink(long minLatencyMicros, long meanExtraLatencyMicros, double errorRate, int maxInFlight,
+                              long targetLatencyMicros) {
+        this.minLatencyMicros = minLatencyMicros;
+        this.meanExtraLatencyMicros = meanExtraLatencyMicros;
+        this.errorRate = errorRate;
+        AimdLimit limit = new AimdLimit(Math.max(1, maxInFlight / 16), maxInFlight,
+                TimeUnit.MICROSECONDS.toNanos(targetLatencyMicros), AimdLimit.DEFAULT_BACKOFF);
+        // a simulated failure stands for a write timeout
+        this.limiter = new WriteLimiter(limit, error -> true);
+    }
+
+    @Override
+    public CompletableFuture<?>[] writeAsync(List<Media> records) {
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = limiter.submit(this::write);
+        }
+        return futures;
+    }
+
+    private CompletableFuture<Void> write() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = minLatencyMicros + (long) (-meanExtraLatencyMicros * Math.log(1 - random.nextDouble()));
+        boolean fails = random.nextDouble() < errorRate;
+        clock.schedule(() -> {
+            if (fails) {
+                failed.incrementAndGet();
+                future.completeExceptionally(new IllegalStateException("simulated write timeout"));
+            } else {
+                written.incrementAndGet();
+                future.complete(null);
+            }
+        }, latency, TimeUnit.MICROSECONDS);
+        return future;
+    }
+
+    @Override
+    public int getBacklog() {
+        return limiter.getBacklog();
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public void close() {
+        clock.shutdownNow();
+    }
+}